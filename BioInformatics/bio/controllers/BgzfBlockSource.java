@@ -0,0 +1,174 @@
+package bio.controllers;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Supplies a BGZF (blocked gzip) file.  Every block of a BGZF file is an
+ * independent gzip member that records its own compressed size, so blocks
+ * are read ahead of the parser and inflated on a pool of threads, then
+ * handed out in file order.
+ * @author Brian J. Walters
+ */
+class BgzfBlockSource implements BlockSource {
+	private static final int HEADER_SIZE = 12;	// Bytes in a gzip header before its extra fields.
+	private static final int TRAILER_SIZE = 8;	// Bytes of CRC32 and size after the data.
+
+	private RandomAccessFile file;					// The file.
+	private FileChannel channel;					// The channel used to read blocks.
+	private long next;								// The offset of the next unread block.
+	private ExecutorService executor;				// The threads inflating blocks.
+	private Deque<Future<ByteBuffer>> pending;		// Blocks being inflated, in file order.
+	private int readAhead;							// The number of blocks inflated ahead.
+
+	/**
+	 * Opens a BGZF file with one inflating thread per available processor.
+	 * @param filename			the file to inflate
+	 * @throws IOException		if the file cannot be opened
+	 */
+	BgzfBlockSource(String filename) throws IOException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		this.file = new RandomAccessFile(filename, "r");
+		this.channel = file.getChannel();
+		this.next = 0;
+		this.pending = new ArrayDeque<Future<ByteBuffer>>();
+		this.readAhead = threads * 4;
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "bgzf-inflater");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * The next inflated block.  Empty blocks, such as the end-of-file
+	 * marker, are skipped.
+	 */
+	public ByteBuffer nextBlock() throws IOException {
+		while (true) {
+			// Keep the pool busy with the blocks that follow.
+			while (pending.size() < readAhead && next < channel.size()) {
+				pending.add(executor.submit(readBlock()));
+			}
+			if (pending.isEmpty()) {
+				return null;
+			}
+			try {
+				ByteBuffer block = pending.poll().get();
+				if (block.limit() > 0) {
+					return block;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				throw new IOException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Reads the compressed bytes of the next block and prepares a task
+	 * which inflates them.
+	 * @return					a task producing the inflated block
+	 * @throws IOException		if the block is not a valid BGZF block
+	 */
+	private Callable<ByteBuffer> readBlock() throws IOException {
+		ByteBuffer header = read(next, HEADER_SIZE);
+		if ((header.get(0) & 0xff) != 0x1f || (header.get(1) & 0xff) != 0x8b || 
+				(header.get(3) & 0x04) == 0) {
+			throw new IOException("Invalid BGZF block at offset " + next);
+		}
+		int extraLength = header.getShort(10) & 0xffff;
+		ByteBuffer extra = read(next + HEADER_SIZE, extraLength);
+		// Find the 'BC' field holding the block size.
+		int blockSize = -1;
+		for (int i = 0; i + 4 <= extraLength; i += 4 + (extra.getShort(i + 2) & 0xffff)) {
+			if (extra.get(i) == 'B' && extra.get(i + 1) == 'C') {
+				blockSize = (extra.getShort(i + 4) & 0xffff) + 1;
+			}
+		}
+		if (blockSize < 0) {
+			throw new IOException("Missing BGZF block size at offset " + next);
+		}
+		int dataLength = blockSize - HEADER_SIZE - extraLength - TRAILER_SIZE;
+		final ByteBuffer data = read(next + HEADER_SIZE + extraLength, dataLength + TRAILER_SIZE);
+		next += blockSize;
+		return () -> inflate(data, dataLength);
+	}
+
+	/**
+	 * Inflates the compressed bytes of a block and checks them against
+	 * the block's trailer.
+	 * @param data				the compressed bytes followed by the trailer
+	 * @param dataLength		the number of compressed bytes
+	 * @return					the inflated block
+	 * @throws IOException		if the block is corrupt
+	 */
+	private static ByteBuffer inflate(ByteBuffer data, int dataLength) throws IOException {
+		int size = data.getInt(dataLength + 4);
+		byte[] inflated = new byte[size];
+		Inflater inflater = new Inflater(true);
+		try {
+			inflater.setInput(data.array(), 0, dataLength);
+			int length = 0;
+			while (length < size && !inflater.finished()) {
+				int count = inflater.inflate(inflated, length, size - length);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += count;
+			}
+			CRC32 crc = new CRC32();
+			crc.update(inflated, 0, length);
+			if (length != size || (int) crc.getValue() != data.getInt(dataLength)) {
+				throw new IOException("Corrupt BGZF block.");
+			}
+		} catch (DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+		return ByteBuffer.wrap(inflated);
+	}
+
+	/**
+	 * Reads bytes from the file in little-endian order.
+	 * @param offset			the offset of the first byte
+	 * @param length			the number of bytes to read
+	 * @return					a buffer holding the bytes
+	 * @throws IOException		if the file ends too soon
+	 */
+	private ByteBuffer read(long offset, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, offset + buffer.position()) < 0) {
+				throw new EOFException("Truncated BGZF block at offset " + offset);
+			}
+		}
+		return buffer;
+	}
+
+	/**
+	 * Stops the inflating threads and closes the file.
+	 */
+	public void close() throws IOException {
+		executor.shutdownNow();
+		channel.close();
+		file.close();
+	}
+}
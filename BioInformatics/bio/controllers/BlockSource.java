@@ -0,0 +1,60 @@
+package bio.controllers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Supplies the bytes of a sequence file as a series of blocks, hiding
+ * whether the file is read directly or decompressed on the way.
+ * @author Brian J. Walters
+ */
+interface BlockSource extends Closeable {
+	
+	/**
+	 * The next block of bytes.  The block may be reused once the
+	 * following block is requested.
+	 * @return					a block of bytes from position 0 to its limit,
+	 *                          or null at the end of the file
+	 * @throws IOException		if the file cannot be read
+	 */
+	ByteBuffer nextBlock() throws IOException;
+	
+	/**
+	 * Opens a sequence file, choosing a source by the file's first bytes.
+	 * BGZF files are inflated block by block in parallel, other gzip files
+	 * are inflated as a stream, and uncompressed files are memory-mapped.
+	 * @param filename			the file to open
+	 * @param start				the offset of the first byte to supply
+	 * @return					a source of the file's bytes
+	 * @throws IOException		if the file cannot be opened, or if a
+	 *                          compressed file is opened past its start
+	 */
+	static BlockSource open(String filename, long start) throws IOException {
+		int format = GzipBlockSource.detectFormat(filename);
+		if (format == GzipBlockSource.PLAIN) {
+			return new MappedBlockSource(filename, start);
+		}
+		if (start != 0) {
+			throw new IOException(filename + " is compressed and cannot be read from an offset.");
+		}
+		if (format == GzipBlockSource.BGZF) {
+			return new BgzfBlockSource(filename);
+		}
+		return new GzipBlockSource(filename);
+	}
+	
+	/**
+	 * Whether a file is compressed, in which case it can only be read
+	 * from its start.
+	 * @param filename			a sequence file
+	 * @return					true if the file is gzip compressed
+	 */
+	static boolean isCompressed(String filename) {
+		try {
+			return GzipBlockSource.detectFormat(filename) != GzipBlockSource.PLAIN;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
@@ -1,22 +1,29 @@
 package bio.controllers;
 
-import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import bio.models.AcidSequence;
 
 /**
- * Parses a FASTA file, providing chunks of Sequence objects
+ * Parses a FASTA or FASTQ file, providing chunks of Sequence objects
  * at a time.
  * @author bjw
  *
  */
 public class ChunkParser {
 	private int chunkSize;		// The number of sequences to parse at a time.
-	private Scanner scanner;	// A file scanner.
-	
+	private SequenceReader reader;	// A reader over the file.
+
+	private BlockingQueue<List<AcidSequence>> chunks;	// Chunks parsed ahead, in read-ahead mode.
+	private Thread producer;							// The thread parsing ahead.
+	private Throwable failure;							// What stopped the producer, if it failed.
+	private volatile boolean closed;					// True once the parser is closed.
+	private boolean exhausted;							// True once the last chunk is taken.
+
 	/**
 	 * Creates a ChunkParser object with a default chunk size of 100.
 	 * @param filename
@@ -24,67 +31,183 @@ public class ChunkParser {
 	public ChunkParser(String filename) {
 		this(filename, 100);
 	}
-	
+
 	/**
 	 * Creates a ChunkParser
 	 * @param filename		the FASTA file to parse
 	 * @param chunkSize		the number of Sequence objects to parse at once.
 	 */
 	public ChunkParser(String filename, int chunkSize) {
+		this(filename, chunkSize, 0, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a ChunkParser which parses chunks ahead of the caller on a
+	 * background thread, so that reading the file overlaps with analyzing
+	 * the chunks already returned.  At most readAhead parsed chunks wait
+	 * in memory at once.
+	 * @param filename		the FASTA file to parse
+	 * @param chunkSize		the number of Sequence objects to parse at once.
+	 * @param readAhead		the number of chunks to parse ahead (at least 1)
+	 */
+	public ChunkParser(String filename, int chunkSize, int readAhead) {
+		this(filename, chunkSize);
+		this.chunks = new ArrayBlockingQueue<List<AcidSequence>>(Math.max(1, readAhead));
+		this.producer = new Thread(new Runnable() {
+			public void run() {
+				produceChunks();
+			}
+		}, "chunk-parser");
+		this.producer.setDaemon(true);
+		this.producer.start();
+	}
+
+	/**
+	 * Creates a ChunkParser over a byte range of a file.
+	 * @see SequenceReader#open(String, long, long)
+	 * @param filename		the FASTA file to parse
+	 * @param chunkSize		the number of Sequence objects to parse at once.
+	 * @param start			the offset of the first byte of the range
+	 * @param end			the offset following the last byte of the range
+	 */
+	public ChunkParser(String filename, int chunkSize, long start, long end) {
 		try {
-			// Create a scanner from the provided file.
-			scanner = new Scanner( new File(filename) );
+			// Create a reader from the provided file.
+			reader = SequenceReader.open(filename, start, end);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
-		
+
 		this.chunkSize = chunkSize;
 	}
-	
+
 	/**
 	 * Parses a chunk of Sequence objects from the file.
-	 * @return	a list of Sequence objects.
+	 * @return	a list of Sequence objects, which is empty once
+	 *          the file is finished.
 	 */
 	public List<AcidSequence> parseChunk() {
+		// Without read-ahead, parse the chunk now.
+		if (chunks == null) {
+			return readChunk();
+		}
+		// Otherwise take the next chunk parsed by the producer.
+		if (exhausted) {
+			return new ArrayList<AcidSequence>();
+		}
+		try {
+			List<AcidSequence> list = chunks.take();
+			if (list.isEmpty()) {
+				exhausted = true;
+				reportFailure();
+			}
+			return list;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			exhausted = true;
+			return new ArrayList<AcidSequence>();
+		}
+	}
+
+	/**
+	 * Reads a chunk of Sequence objects from the file.
+	 * @return	a list of Sequence objects.
+	 */
+	private List<AcidSequence> readChunk() {
 		ArrayList<AcidSequence> list = new ArrayList<AcidSequence>();
-		
-		// Begin with an initial sequence
-		// TODO: assumes file is not empty
-		AcidSequence sequence = new AcidSequence();
-		// While the file is not finished and we have not reached the 
+
+		try {
+			fillChunk(list);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return list;
+	}
+
+	/**
+	 * Reads Sequence objects from the file into a chunk.
+	 * @param list				the chunk to fill
+	 * @throws IOException		if the file cannot be read
+	 */
+	private void fillChunk(List<AcidSequence> list) throws IOException {
+		// While the file is not finished and we have not reached the
 		// total number of sequences per chunk...
-		while (scanner.hasNextLine() && list.size() < chunkSize) {
-			// Get a line from the FASTA file...
-			String line = scanner.nextLine();
-			
-			// If the line begins with a '>'...
-			if (!line.isEmpty() && line.charAt(0) == '>') {
-				// then it is the start of a new Sequence
-				// and should be used as the description.
-				sequence = new AcidSequence(line.substring(1));
-			}
-			// If the line is empty, then we have reached
-			// the end of a sequence...
-			else if (line.isEmpty() || 
-					 line.charAt(0) == '\n' ||
-					 !scanner.hasNextLine()) {
-				// so add it to the list.
-				list.add(sequence);
-			}
-			// Otherwise, the line must be part of the current
-			// sequence's data...
-			else {
-				// so append it to the data of the current Sequence.
-				sequence.appendSequence(line);
+		AcidSequence sequence;
+		while (list.size() < chunkSize && (sequence = reader.nextSequence()) != null) {
+			// add the next Sequence to the list.
+			list.add(sequence);
+		}
+	}
+
+	/**
+	 * Parses chunks into the read-ahead queue until the file is finished
+	 * or the parser is closed, ending with an empty chunk.  Waits whenever
+	 * the queue is full.  A failure is kept for the consumer, which learns
+	 * of it on taking the empty chunk that follows.
+	 */
+	private void produceChunks() {
+		List<AcidSequence> list = new ArrayList<AcidSequence>();
+		try {
+			do {
+				list = new ArrayList<AcidSequence>();
+				fillChunk(list);
+				putChunk(list);
+			} while (!list.isEmpty() && !closed);
+		} catch (Throwable t) {
+			failure = t;
+			try {
+				// Hand over the Sequences read before the failure, then the end of the file.
+				if (!list.isEmpty()) {
+					putChunk(list);
+				}
+				putChunk(new ArrayList<AcidSequence>());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
 			}
 		}
-		return list;
 	}
-	
+
+	/**
+	 * Adds a chunk to the read-ahead queue unless the parser is closed.
+	 * Closing the parser empties the queue, so at most one chunk put
+	 * after the check can be waiting for room, and it always finds it.
+	 * @param list					a chunk of Sequence objects
+	 * @throws InterruptedException	if the producer is interrupted while waiting
+	 */
+	private void putChunk(List<AcidSequence> list) throws InterruptedException {
+		if (!closed) {
+			chunks.put(list);
+		}
+	}
+
+	/**
+	 * Reports a failure of the producer on the consumer's thread, the same
+	 * way a failure is reported without read-ahead.  Errors are rethrown.
+	 */
+	private void reportFailure() {
+		if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		if (failure != null) {
+			failure.printStackTrace();
+		}
+	}
+
 	/**
 	 * Closes the file opened by the ChunkParser.
 	 */
 	public void close() {
-		scanner.close();
+		try {
+			// Stop parsing ahead before the file is closed beneath the producer.  The
+			// producer stops after its current chunk; emptying the queue lets it put that chunk.
+			if (producer != null) {
+				closed = true;
+				chunks.clear();
+				producer.join();
+			}
+			reader.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 	}
 }
@@ -0,0 +1,441 @@
+package bio.controllers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import bio.models.AcidSequence;
+
+/**
+ * An index of the Sequences in a FASTA file, allowing any Sequence or part of
+ * a Sequence to be read without parsing the rest of the file.  The index is
+ * stored beside the FASTA file in the .fai format used by samtools, one line per
+ * Sequence holding its name, length, byte offset, bases per line and bytes per line.
+ * The index is built the first time a file is opened and reused afterwards.
+ * @author Brian J. Walters
+ */
+public class FastaIndex {
+	private static final int BLOCK_SIZE = 1 << 20;		// Bytes read at a time.
+	private static final int HEADER_LIMIT = 1 << 16;	// The longest header searched for.
+
+	private String filename;				// The indexed FASTA file.
+	private RandomAccessFile file;			// The FASTA file, opened for reading.
+	private FileChannel channel;			// The channel used to read the file.
+	private List<Entry> entries;			// The index entries in file order.
+	private Map<String, Entry> names;		// The index entries by Sequence name.
+
+	/**
+	 * Opens a FASTA file for random access, reading its index from the .fai
+	 * file beside it.  If the index is missing or older than the FASTA file,
+	 * the FASTA file is scanned and a new index is written.  An index that
+	 * cannot be written is kept in memory for as long as the file is open.
+	 * @param filename			the FASTA file to open
+	 * @throws IOException		if the file cannot be read, or cannot be indexed
+	 *                          because it is compressed, a FASTQ file, or has
+	 *                          Sequences with lines of unequal length
+	 */
+	public FastaIndex(String filename) throws IOException {
+		this.filename = filename;
+		this.entries = new ArrayList<Entry>();
+		this.names = new HashMap<String, Entry>();
+
+		File fasta = new File(filename);
+		File index = new File(getIndexFilename(filename));
+		// Reuse an up to date index...
+		if (index.isFile() && index.lastModified() >= fasta.lastModified()) {
+			readIndex(index);
+		}
+		// or build and save a new one.
+		else {
+			buildIndex(fasta);
+			try {
+				writeIndex(index);
+			} catch (IOException e) {
+				// The directory may be read-only, so keep the index in memory only,
+				// and remove any partial index so that it is not reused later.
+				if (index.isFile()) {
+					index.delete();
+				}
+			}
+		}
+		this.file = new RandomAccessFile(fasta, "r");
+		this.channel = file.getChannel();
+	}
+
+	/**
+	 * The name of the index file for a FASTA file.
+	 * @param filename		a FASTA file
+	 * @return				the name of its index file
+	 */
+	public static String getIndexFilename(String filename) {
+		return filename + ".fai";
+	}
+
+	/**
+	 * The number of Sequences in the FASTA file.
+	 * @return		the number of Sequences
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * The names of the Sequences in the FASTA file, in file order.  The name
+	 * of a Sequence is its description up to the first whitespace.
+	 * @return		a list of names
+	 */
+	public List<String> getNames() {
+		List<String> result = new ArrayList<String>();
+		for (Entry entry : entries) {
+			result.add(entry.name);
+		}
+		return result;
+	}
+
+	/**
+	 * The number of acid codes in a Sequence.
+	 * @require			getNames().contains(name)
+	 * @param name		the name of a Sequence
+	 * @return			the number of acid codes in the Sequence
+	 */
+	public long getLength(String name) {
+		return names.get(name).length;
+	}
+
+	/**
+	 * Reads a Sequence from the FASTA file by its position in the file.
+	 * @require			0 <= index < size()
+	 * @param index		the position of the Sequence in the file
+	 * @return			the Sequence
+	 */
+	public AcidSequence getSequence(int index) {
+		Entry entry = entries.get(index);
+		return read(entry, 0, entry.length);
+	}
+
+	/**
+	 * Reads a Sequence from the FASTA file by its name.
+	 * @require			getNames().contains(name)
+	 * @param name		the name of a Sequence
+	 * @return			the Sequence
+	 */
+	public AcidSequence getSequence(String name) {
+		Entry entry = names.get(name);
+		return read(entry, 0, entry.length);
+	}
+
+	/**
+	 * Reads part of a Sequence from the FASTA file.
+	 * @require			getNames().contains(name)
+	 * @require			0 <= start <= end <= getLength(name)
+	 * @param name		the name of a Sequence
+	 * @param start		the index of the first acid code to read
+	 * @param end		the index following the last acid code to read
+	 * @return			a Sequence holding the acid codes from start to end
+	 */
+	public AcidSequence getSubsequence(String name, long start, long end) {
+		return read(names.get(name), start, end);
+	}
+
+	/**
+	 * Closes the FASTA file.
+	 */
+	public void close() {
+		try {
+			channel.close();
+			file.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Reads the acid codes from start to end of an indexed Sequence.  The
+	 * bytes holding those codes are found by arithmetic on the line lengths,
+	 * so they are read with a single seek.
+	 * @param entry		the index entry of a Sequence
+	 * @param start		the index of the first acid code to read
+	 * @param end		the index following the last acid code to read
+	 * @return			a Sequence holding the acid codes
+	 */
+	private AcidSequence read(Entry entry, long start, long end) {
+		AcidSequence sequence = new AcidSequence(readDescription(entry));
+		if (start >= end) {
+			return sequence;
+		}
+		try {
+			long first = entry.positionOf(start);
+			long last = entry.positionOf(end - 1) + 1;
+			ByteBuffer block = ByteBuffer.allocate((int) Math.min(BLOCK_SIZE, last - first));
+			byte[] residues = new byte[block.capacity()];
+			// Read the bytes a block at a time...
+			while (first < last) {
+				block.clear();
+				block.limit((int) Math.min(block.capacity(), last - first));
+				int count = channel.read(block, first);
+				if (count <= 0) {
+					break;
+				}
+				// and keep everything but the line terminators.
+				int length = 0;
+				for (int i = 0; i < count; i++) {
+					byte b = block.get(i);
+					if (b != '\n' && b != '\r') {
+						residues[length++] = b;
+					}
+				}
+				sequence.appendResidues(residues, 0, length);
+				first += count;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return sequence;
+	}
+
+	/**
+	 * Reads the header line preceding an indexed Sequence.
+	 * @param entry		the index entry of a Sequence
+	 * @return			the description of the Sequence, or its name if
+	 *                  the header cannot be read
+	 */
+	private String readDescription(Entry entry) {
+		try {
+			int size = (int) Math.min(HEADER_LIMIT, entry.offset);
+			ByteBuffer block = ByteBuffer.allocate(size);
+			channel.read(block, entry.offset - size);
+			// Search backwards from the start of the data for the '>'.
+			int end = size;
+			while (end > 0 && (block.get(end - 1) == '\n' || block.get(end - 1) == '\r')) {
+				end--;
+			}
+			for (int i = end - 1; i >= 0; i--) {
+				if (block.get(i) == '>' && (i > 0 ? block.get(i - 1) == '\n' : entry.offset == size)) {
+					return new String(block.array(), i + 1, end - i - 1, StandardCharsets.ISO_8859_1);
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return entry.name;
+	}
+
+	/**
+	 * Scans a FASTA file and records an index entry for every Sequence.
+	 * @param fasta				the FASTA file
+	 * @throws IOException		if the file cannot be read, or if a Sequence
+	 *                          does not have lines of equal length
+	 */
+	private void buildIndex(File fasta) throws IOException {
+		if (SequenceReader.isCompressed(fasta.getPath())) {
+			throw new IOException(fasta + " is compressed; only uncompressed files can be indexed.");
+		}
+		if (SequenceReader.isFastq(fasta.getPath())) {
+			throw new IOException(fasta + " is a FASTQ file; only FASTA files can be indexed.");
+		}
+		try (RandomAccessFile input = new RandomAccessFile(fasta, "r")) {
+			FileChannel fastaChannel = input.getChannel();
+			ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+			StringBuilder name = new StringBuilder();
+			Entry entry = null;			// The Sequence being indexed.
+			boolean inHeader = false;	// True while reading a header line.
+			boolean inName = false;		// True while reading the name in a header.
+			boolean lineStart = true;	// True at the first byte of a line.
+			long lineBases = 0;			// The acid codes on the current line.
+			long lineWidth = 0;			// The bytes on the current line.
+			boolean lastLine = false;	// True once a short or blank line ends the data.
+			long offset = 0;
+
+			int count;
+			while ((count = fastaChannel.read(block, offset)) > 0) {
+				for (int i = 0; i < count; i++, offset++) {
+					byte b = block.get(i);
+					// A '>' at the start of a line begins a new Sequence.
+					if (lineStart && b == '>') {
+						inHeader = true;
+						inName = true;
+						name.setLength(0);
+						lineStart = false;
+						continue;
+					}
+					lineStart = (b == '\n');
+					if (inHeader) {
+						if (b == '\n') {
+							// The data begins on the line after the header.
+							entry = new Entry(name.toString(), offset + 1);
+							addEntry(entry);
+							inHeader = false;
+							lastLine = false;
+							lineBases = 0;
+							lineWidth = 0;
+						} else if (inName && (b == ' ' || b == '\t' || b == '\r')) {
+							inName = false;
+						} else if (inName) {
+							name.append((char) (b & 0xff));
+						}
+						continue;
+					}
+					// Measure the lines of data.
+					lineWidth++;
+					if (b != '\n' && b != '\r') {
+						lineBases++;
+					}
+					if (b == '\n') {
+						// Blank lines between the header and the data are skipped.
+						if (entry != null && entry.length == 0 && lineBases == 0) {
+							entry.offset += lineWidth;
+						}
+						endLine(entry, lineBases, lineWidth, lastLine);
+						if (entry != null && lineBases != 0 && lineBases < entry.lineBases) {
+							lastLine = true;
+						} else if (entry != null && lineBases == 0 && entry.length > 0) {
+							lastLine = true;
+						}
+						lineBases = 0;
+						lineWidth = 0;
+					}
+				}
+				block.clear();
+			}
+			// Finish a final line that has no newline.
+			if (inHeader) {
+				addEntry(new Entry(name.toString(), offset));
+			} else if (lineBases > 0) {
+				// The missing line terminator is assumed to match the other lines.
+				long width = lineWidth + 1;
+				if (entry != null && entry.lineBases == lineBases) {
+					width = entry.lineWidth;
+				}
+				endLine(entry, lineBases, width, lastLine);
+			}
+		}
+	}
+
+	/**
+	 * Adds a line of data to the index entry of a Sequence.
+	 * @param entry				the Sequence being indexed, or null
+	 * @param lineBases			the acid codes on the line
+	 * @param lineWidth			the bytes on the line
+	 * @param lastLine			true if the Sequence's data has already ended
+	 * @throws IOException		if the line breaks the Sequence's line length
+	 */
+	private void endLine(Entry entry, long lineBases, long lineWidth, boolean lastLine)
+			throws IOException {
+		if (entry == null || lineBases == 0) {
+			return;
+		}
+		if (lastLine) {
+			throw new IOException("Sequence " + entry.name + " has lines of unequal length; " +
+								  "it cannot be indexed.");
+		}
+		if (entry.lineBases == 0) {
+			entry.lineBases = lineBases;
+			entry.lineWidth = lineWidth;
+		} else if (lineBases > entry.lineBases ||
+				   (lineBases == entry.lineBases && lineWidth != entry.lineWidth)) {
+			throw new IOException("Sequence " + entry.name + " has lines of unequal length; " +
+								  "it cannot be indexed.");
+		}
+		entry.length += lineBases;
+	}
+
+	/**
+	 * Reads the entries of an existing index file.
+	 * @param index				the .fai file
+	 * @throws IOException		if the file cannot be read
+	 */
+	private void readIndex(File index) throws IOException {
+		try (Scanner scanner = new Scanner(index)) {
+			while (scanner.hasNextLine()) {
+				String[] fields = scanner.nextLine().split("\t");
+				if (fields.length >= 5) {
+					Entry entry = new Entry(fields[0], Long.parseLong(fields[2]));
+					entry.length = Long.parseLong(fields[1]);
+					entry.lineBases = Long.parseLong(fields[3]);
+					entry.lineWidth = Long.parseLong(fields[4]);
+					addEntry(entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the entries to an index file.
+	 * @param index				the .fai file
+	 * @throws IOException		if the file cannot be written
+	 */
+	private void writeIndex(File index) throws IOException {
+		try (PrintWriter pw = new PrintWriter(index)) {
+			for (Entry entry : entries) {
+				pw.print(entry.name + "\t" + entry.length + "\t" + entry.offset + "\t" +
+						 entry.lineBases + "\t" + entry.lineWidth + "\n");
+			}
+			pw.flush();
+		}
+	}
+
+	/**
+	 * Adds an entry to the index.
+	 * @param entry		an index entry
+	 */
+	private void addEntry(Entry entry) {
+		entries.add(entry);
+		if (!names.containsKey(entry.name)) {
+			names.put(entry.name, entry);
+		}
+	}
+
+	/**
+	 * A String representation of the index, in the .fai format.
+	 */
+	public String toString() {
+		StringBuilder results = new StringBuilder(filename + ":\n");
+		for (Entry entry : entries) {
+			results.append(entry.name + "\t" + entry.length + "\t" + entry.offset + "\t" +
+						   entry.lineBases + "\t" + entry.lineWidth + "\n");
+		}
+		return results.toString();
+	}
+
+	/**
+	 * The index entry of one Sequence.
+	 */
+	private static class Entry {
+		String name;		// The Sequence's description up to the first whitespace.
+		long length;		// The number of acid codes in the Sequence.
+		long offset;		// The byte offset of the first acid code.
+		long lineBases;		// The number of acid codes on each full line.
+		long lineWidth;		// The number of bytes on each full line.
+
+		/**
+		 * Creates an entry for a Sequence whose data begins at an offset.
+		 * @param name		the Sequence's name
+		 * @param offset	the byte offset of the first acid code
+		 */
+		Entry(String name, long offset) {
+			this.name = name;
+			this.offset = offset;
+		}
+
+		/**
+		 * The byte offset of an acid code in the Sequence.
+		 * @param index		the index of an acid code in the Sequence
+		 * @return			its byte offset in the file
+		 */
+		long positionOf(long index) {
+			if (lineBases == 0) {
+				return offset + index;
+			}
+			return offset + (index / lineBases) * lineWidth + index % lineBases;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package bio.controllers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import bio.models.AcidSequence;
+
+/**
+ * Reads the records of a FASTA file one Sequence at a time.
+ * The file is memory-mapped in large windows and scanned byte by byte
+ * for '>' and newlines, so the residues of a line are appended to their
+ * Sequence without building a String for every line.  Gzip compressed
+ * files are inflated on the way, and BGZF files are inflated in parallel.
+ * @author Brian J. Walters
+ */
+public class FastaReader extends SequenceReader {
+	private boolean finished;			// True once the end of the range is reached.
+	private String nextDescription;		// A header read ahead of its Sequence.
+
+	/**
+	 * Opens a FASTA file for reading.
+	 * @param filename			the FASTA file to read
+	 * @throws IOException		if the file cannot be opened
+	 */
+	public FastaReader(String filename) throws IOException {
+		this(filename, 0, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Opens a byte range of a FASTA file for reading.  The range holds every
+	 * Sequence whose header begins at or after the start offset and before 
+	 * the end offset.  A Sequence that begins in the range is read in full,
+	 * even if its data continues past the end offset, so adjacent ranges 
+	 * together hold every Sequence in the file exactly once.
+	 * NOTE: Compressed files can only be read from their start.
+	 * @param filename			the FASTA file to read
+	 * @param start				the offset of the first byte of the range
+	 * @param end				the offset following the last byte of the range
+	 * @throws IOException		if the file cannot be opened
+	 */
+	public FastaReader(String filename, long start, long end) throws IOException {
+		// A range that begins inside the file begins at its first header.
+		super(filename, FastaSplitter.findRecord(filename, start, false), end);
+		this.finished = false;
+		this.nextDescription = null;
+	}
+
+	/**
+	 * Reads the next Sequence from the file.  A Sequence begins at a line
+	 * starting with '>' and continues until the next such line or the end
+	 * of the file.  Blank lines are ignored.
+	 * @return					the next Sequence, or null if the file is finished
+	 * @throws IOException		if the file cannot be read
+	 */
+	public AcidSequence nextSequence() throws IOException {
+		if (finished) {
+			return null;
+		}
+		AcidSequence sequence = null;
+		// If the previous call stopped at a header, that header begins this Sequence.
+		if (nextDescription != null) {
+			sequence = new AcidSequence(nextDescription);
+			nextDescription = null;
+		}
+		int length;
+		long lineStart = getOffset();
+		// While there are lines left in the file...
+		while ((length = readLine()) >= 0) {
+			// If the line begins with a '>'...
+			if (length > 0 && line[0] == '>') {
+				// and begins past the end of the range, there are no Sequences left.
+				if (lineStart >= end) {
+					finished = true;
+					break;
+				}
+				String description = new String(line, 1, length - 1, StandardCharsets.ISO_8859_1);
+				// then either it ends the current Sequence...
+				if (sequence != null) {
+					nextDescription = description;
+					return sequence;
+				}
+				// or it is the description of a new one.
+				sequence = new AcidSequence(description);
+			}
+			// Otherwise, a non-empty line is part of the current Sequence's data.
+			else if (length > 0) {
+				if (sequence == null) {
+					sequence = new AcidSequence();
+				}
+				sequence.appendResidues(line, 0, length);
+			}
+			lineStart = getOffset();
+		}
+		return sequence;
+	}
+}
@@ -0,0 +1,128 @@
+package bio.controllers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import bio.models.AcidSequence;
+
+/**
+ * A Spliterator over the Sequences of a FASTA or FASTQ file.  Sequences are parsed
+ * lazily, one at a time, as the Spliterator is advanced.  Before parsing
+ * begins, a Spliterator can be split into two halves of its byte range; each
+ * half reads the Sequences whose headers begin inside it, so splits always
+ * fall on Sequence boundaries and parallel streams can divide a file freely.
+ * @author Brian J. Walters
+ */
+public class FastaSpliterator implements Spliterator<AcidSequence>, Closeable {
+	private static final long MINIMUM_SPLIT = 1 << 20;	// The smallest range worth splitting.
+
+	private String filename;			// The FASTA or FASTQ file.
+	private long start;					// The offset of the first byte of the range.
+	private long end;					// The offset following the last byte of the range.
+	private SequenceReader reader;			// The reader over the range, once parsing begins.
+	private List<SequenceReader> readers;	// The readers opened by this and its splits.
+	private boolean splittable;			// False if the file is compressed.
+
+	/**
+	 * Creates a Spliterator over every Sequence in a FASTA or FASTQ file.
+	 * @param filename		the file to read
+	 */
+	public FastaSpliterator(String filename) {
+		this(filename, 0, new File(filename).length(), new ArrayList<SequenceReader>());
+		// A compressed file is read whole, since its offsets cannot be divided.
+		if (SequenceReader.isCompressed(filename)) {
+			this.end = Long.MAX_VALUE;
+			this.splittable = false;
+		}
+	}
+
+	/**
+	 * Creates a Spliterator over a byte range of a FASTA or FASTQ file.
+	 * @param filename		the file to read
+	 * @param start			the offset of the first byte of the range
+	 * @param end			the offset following the last byte of the range
+	 * @param readers		the readers to close along with this Spliterator
+	 */
+	private FastaSpliterator(String filename, long start, long end, List<SequenceReader> readers) {
+		this.filename = filename;
+		this.start = start;
+		this.end = end;
+		this.readers = readers;
+		this.splittable = true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean tryAdvance(Consumer<? super AcidSequence> action) {
+		try {
+			if (reader == null) {
+				reader = SequenceReader.open(filename, start, end);
+				synchronized (readers) {
+					readers.add(reader);
+				}
+			}
+			AcidSequence sequence = reader.nextSequence();
+			if (sequence == null) {
+				reader.close();
+				return false;
+			}
+			action.accept(sequence);
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Splits off the second half of this Spliterator's byte range.
+	 * @return		a Spliterator over the second half, or null if parsing
+	 *              has begun or the range cannot be divided
+	 */
+	public Spliterator<AcidSequence> trySplit() {
+		if (reader != null || !splittable || end - start < MINIMUM_SPLIT) {
+			return null;
+		}
+		long middle = start + (end - start) / 2;
+		FastaSpliterator second = new FastaSpliterator(filename, middle, end, readers);
+		this.end = middle;
+		return second;
+	}
+
+	/**
+	 * The number of bytes left in this Spliterator's range, which is
+	 * proportional to the number of Sequences left.
+	 */
+	public long estimateSize() {
+		return end - start;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int characteristics() {
+		return ORDERED | NONNULL | IMMUTABLE;
+	}
+
+	/**
+	 * Closes every file opened by this Spliterator and the Spliterators split from it.
+	 */
+	public void close() {
+		synchronized (readers) {
+			for (SequenceReader opened : readers) {
+				try {
+					opened.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			readers.clear();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package bio.controllers;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Divides a FASTA or FASTQ file into byte ranges that can be parsed
+ * independently, so that a large file can be spread across several threads.
+ * @author Brian J. Walters
+ */
+public class FastaSplitter {
+	private static final int BLOCK_SIZE = 1 << 16;	// Bytes read at a time while seeking a record.
+
+	/**
+	 * Divides a FASTA or FASTQ file into at most the given number of byte ranges
+	 * of roughly equal size.  Every range begins at the start of a record, found
+	 * by moving forward from the range's nominal offset, so each range can be
+	 * read by a SequenceReader without sharing a Sequence with its neighbours.
+	 * A compressed file cannot be divided and is returned as a single range.
+	 * @param filename		the file to split
+	 * @param parts			the number of ranges wanted
+	 * @return				the offsets of the ranges; range i covers
+	 *                      offsets[i] up to (but not including) offsets[i + 1]
+	 */
+	public long[] split(String filename, int parts) {
+		List<Long> offsets = new ArrayList<Long>();
+		offsets.add(0L);
+		long fileSize = Long.MAX_VALUE;
+		if (SequenceReader.isCompressed(filename)) {
+			return new long[] {0, fileSize};
+		}
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			boolean fastq = SequenceReader.isFastq(filename);
+			FileChannel channel = file.getChannel();
+			fileSize = channel.size();
+			// For every nominal boundary after the first...
+			for (int part = 1; part < parts; part++) {
+				long nominal = fileSize / parts * part;
+				// find the first record at or after it...
+				long record = findRecord(channel, fileSize, nominal, fastq);
+				// and use it if it begins a new, non-empty range.
+				if (record > offsets.get(offsets.size() - 1) && record < fileSize) {
+					offsets.add(record);
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		offsets.add(fileSize);
+
+		long[] result = new long[offsets.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = offsets.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the first record of a file beginning at or after an offset.
+	 * @param filename			a FASTA or FASTQ file
+	 * @param offset			the offset to begin searching from
+	 * @param fastq				true if the file is a FASTQ file
+	 * @return					the offset of the record, or the size of
+	 *                          the file if there is none
+	 * @throws IOException		if the file cannot be read
+	 */
+	static long findRecord(String filename, long offset, boolean fastq) throws IOException {
+		if (offset == 0) {
+			return 0;
+		}
+		try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+			FileChannel channel = file.getChannel();
+			return findRecord(channel, channel.size(), offset, fastq);
+		}
+	}
+
+	/**
+	 * Finds the first record beginning at or after an offset.
+	 * @param channel			the file
+	 * @param fileSize			the size of the file in bytes
+	 * @param offset			the offset to begin searching from
+	 * @param fastq				true if the file is a FASTQ file
+	 * @return					the offset of the record, or fileSize if there is none
+	 * @throws IOException		if the file cannot be read
+	 */
+	private static long findRecord(FileChannel channel, long fileSize, long offset, boolean fastq)
+			throws IOException {
+		if (offset == 0) {
+			return 0;
+		}
+		if (offset >= fileSize) {
+			return fileSize;
+		}
+		return fastq ? findFastqRecord(channel, fileSize, offset)
+					 : findFastaRecord(channel, fileSize, offset);
+	}
+
+	/**
+	 * Finds the first line beginning with '>' at or after an offset.
+	 * @param channel			the FASTA file
+	 * @param fileSize			the size of the file in bytes
+	 * @param offset			the offset to begin searching from
+	 * @return					the offset of the '>', or fileSize if there is none
+	 * @throws IOException		if the file cannot be read
+	 */
+	private static long findFastaRecord(FileChannel channel, long fileSize, long offset)
+			throws IOException {
+		ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+		// Begin at the byte before the offset, so that a header starting
+		// exactly at the offset is recognized by its preceding newline.
+		long blockStart = offset - 1;
+		byte previous = 0;
+		while (blockStart < fileSize) {
+			block.clear();
+			int count = channel.read(block, blockStart);
+			if (count <= 0) {
+				break;
+			}
+			for (int i = 0; i < count; i++) {
+				byte current = block.get(i);
+				if (current == '>' && previous == '\n') {
+					return blockStart + i;
+				}
+				previous = current;
+			}
+			blockStart += count;
+		}
+		return fileSize;
+	}
+
+	/**
+	 * Finds the first FASTQ record at or after an offset.  Since a quality line
+	 * may also begin with '@', a record is recognized as a line beginning with
+	 * '@' whose second following line begins with '+'.
+	 * NOTE: Assumes four-line records, with the sequence and qualities each
+	 *       on a single line.
+	 * @param channel			the FASTQ file
+	 * @param fileSize			the size of the file in bytes
+	 * @param offset			the offset to begin searching from
+	 * @return					the offset of the '@', or fileSize if there is none
+	 * @throws IOException		if the file cannot be read
+	 */
+	private static long findFastqRecord(FileChannel channel, long fileSize, long offset)
+			throws IOException {
+		// Begin at the byte before the offset, so that a line starting
+		// exactly at the offset is recognized by its preceding newline.
+		long blockStart = offset - 1;
+		long size = BLOCK_SIZE;
+		while (true) {
+			// Read a block large enough to hold a few whole lines.
+			ByteBuffer block = ByteBuffer.allocate((int) Math.min(size, fileSize - blockStart));
+			while (block.hasRemaining() && channel.read(block, blockStart + block.position()) > 0) {
+				// Keep reading until the block is full.
+			}
+			int count = block.position();
+			boolean lastBlock = blockStart + count >= fileSize;
+			// Find the starts of the lines in the block.
+			List<Integer> starts = new ArrayList<Integer>();
+			for (int i = 1; i < count; i++) {
+				if (block.get(i - 1) == '\n') {
+					starts.add(i);
+				}
+			}
+			for (int k = 0; k + 2 < starts.size(); k++) {
+				if (block.get(starts.get(k)) == '@' && block.get(starts.get(k + 2)) == '+') {
+					return blockStart + starts.get(k);
+				}
+			}
+			// Eight lines always hold a four-line record, so a file without one
+			// cannot be divided, and the rest of it forms a single range.
+			if (lastBlock || starts.size() >= 8) {
+				return fileSize;
+			}
+			// Not enough lines were seen, so try again with a larger block.
+			size *= 2;
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package bio.controllers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import bio.models.AcidSequence;
+import bio.models.FastqSequence;
+
+/**
+ * Reads the records of a FASTQ file one Sequence at a time.  Each record
+ * is a '@' header line, one or more lines of acid codes, a '+' separator
+ * line, and as many quality characters as there are acid codes.  The
+ * qualities are kept as Phred scores in a byte array beside the acid codes.
+ * @author Brian J. Walters
+ */
+public class FastqReader extends SequenceReader {
+	private boolean finished;			// True once the end of the range is reached.
+
+	/**
+	 * Opens a FASTQ file for reading.
+	 * @param filename			the FASTQ file to read
+	 * @throws IOException		if the file cannot be opened
+	 */
+	public FastqReader(String filename) throws IOException {
+		this(filename, 0, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Opens a byte range of a FASTQ file for reading.  The range holds every
+	 * Sequence whose record begins at or after the start offset and before 
+	 * the end offset.
+	 * NOTE: Compressed files can only be read from their start.
+	 * @see FastaSplitter#split(String, int)
+	 * @param filename			the FASTQ file to read
+	 * @param start				the offset of the first byte of the range
+	 * @param end				the offset following the last byte of the range
+	 * @throws IOException		if the file cannot be opened
+	 */
+	public FastqReader(String filename, long start, long end) throws IOException {
+		// A range that begins inside the file begins at its first record.
+		super(filename, FastaSplitter.findRecord(filename, start, true), end);
+		this.finished = false;
+	}
+
+	/**
+	 * Reads the next Sequence from the file.  Blank lines between records
+	 * are ignored.
+	 * @return					the next Sequence, or null if the file is finished
+	 * @throws IOException		if the file cannot be read or a record is malformed
+	 */
+	public AcidSequence nextSequence() throws IOException {
+		if (finished) {
+			return null;
+		}
+		// Find the header line.
+		int length;
+		long lineStart;
+		do {
+			lineStart = getOffset();
+			length = readLine();
+		} while (length == 0);
+		// If the file is finished, or the record begins past the end
+		// of the range, there are no Sequences left.
+		if (length < 0 || lineStart >= end) {
+			finished = true;
+			return null;
+		}
+		if (line[0] != '@') {
+			throw new IOException("Malformed FASTQ record at offset " + lineStart + ".");
+		}
+		FastqSequence sequence = new FastqSequence(
+				new String(line, 1, length - 1, StandardCharsets.ISO_8859_1));
+		// Append lines of acid codes until the '+' separator...
+		while ((length = readLine()) >= 0 && (length == 0 || line[0] != '+')) {
+			sequence.appendResidues(line, 0, length);
+		}
+		// and then lines of qualities until there is one for every acid code.
+		while (length >= 0 && sequence.getQualityCount() < sequence.getCount()) {
+			length = readLine();
+			if (length > 0) {
+				sequence.appendQualities(line, 0, length);
+			}
+		}
+		if (length < 0 || sequence.getQualityCount() != sequence.getCount()) {
+			throw new IOException("Truncated FASTQ record " + sequence.getDescription() + ".");
+		}
+		return sequence;
+	}
+}
@@ -1,65 +1,97 @@
 package bio.controllers;
-import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import bio.models.AcidSequence;
+import bio.models.OffHeapSequenceStore;
 
 /**
- * Parses a FASTA file.
+ * Parses a FASTA or FASTQ file.
  * @author Brian J. Walters
  *
  */
 public class FileParser {
 	
 	/**
-	 * Parses a file to produce list of Sequence objects.
+	 * Parses a file to produce list of Sequence objects.  The Sequences
+	 * of a FASTQ file are FastqSequence objects holding their qualities.
+	 * NOTE: The first parse of a DNA FASTA file writes a packed 2-bit cache beside
+	 *       the file, which later parses read instead of the text.
+	 * @see TwoBitCache
 	 * @param filename	the FASTA file to parse
 	 * @return			a list of Sequence objects
 	 */
 	public List<AcidSequence> parseFile(String filename) {
 		ArrayList<AcidSequence> list = new ArrayList<AcidSequence>();
-		
-		// Create a scanner from the provided filename.
-		Scanner scanner = null;
-		try {
-			scanner = new Scanner(new File(filename));
-		} catch (Exception e) {
-			e.printStackTrace();
+		parseFile(filename, list);
+		return list;
+	}
+	
+	/**
+	 * Parses a file into an off-heap store, so that the acid codes of a
+	 * genome-scale file never occupy the Java heap.  Only one Sequence is
+	 * held on the heap at a time while the file is read.  The store is a
+	 * list of Sequence objects, so it can be given to the analyzers as is.
+	 * NOTE: The store does not keep the qualities of a FASTQ file.
+	 * @param filename	the FASTA file to parse
+	 * @param store		the store to add the Sequences to
+	 * @return			the store
+	 */
+	public OffHeapSequenceStore storeFile(String filename, OffHeapSequenceStore store) {
+		parseFile(filename, store);
+		return store;
+	}
+	
+	/**
+	 * Parses a file, adding its Sequence objects to a list.
+	 * @param filename	the FASTA file to parse
+	 * @param list		the list to add the Sequences to
+	 */
+	private void parseFile(String filename, List<AcidSequence> list) {
+		int first = list.size();
+		// Use the cache of the file if it is up to date.
+		TwoBitCache cache = new TwoBitCache();
+		if (cache.isCurrent(filename)) {
+			if (cache.read(filename, list)) {
+				return;
+			}
+			// A cache that could not be read is parsed from the text instead.
+			list.subList(first, list.size()).clear();
 		}
 		
-		// Begin with an initial sequence
-		// TODO: assumes file is not empty
-		AcidSequence sequence = new AcidSequence();
-		// While we have not reached the end of the file... 
-		while (scanner.hasNextLine()) {
-			// Get a line from the FASTA file...
-			String line = scanner.nextLine();
-			
-			// If the line begins with a '>'...
-			if (!line.isEmpty() && line.charAt(0) == '>') {
-				// then it is the start of a new Sequence
-				// and should be used as the description.
-				sequence = new AcidSequence(line.substring(1));
-			}
-			// If the line is empty, then we have reached
-			// the end of a sequence...
-			else if (line.isEmpty() || 
-					 line.charAt(0) == '\n') {
-				// so add it to the list.
+		// Open a reader on the provided filename...
+		boolean fastq = false;
+		try (SequenceReader reader = SequenceReader.open(filename, 0, Long.MAX_VALUE)) {
+			fastq = reader instanceof FastqReader;
+			AcidSequence sequence;
+			// and add every Sequence in the file to the list.
+			while ((sequence = reader.nextSequence()) != null) {
 				list.add(sequence);
 			}
-			// Otherwise, the line must be part of the current
-			// sequence's data...
-			else {
-				// so append it to the data of the current Sequence.
-				sequence.appendSequence(line);
-			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
 		}
-		list.add(sequence);
-		// Close the file and return the list.
-		scanner.close();
-		return list;
+		// Cache the file for next time, if it can be packed.  The cache
+		// does not hold the qualities of a FASTQ file.
+		if (list.size() > first && !fastq) {
+			cache.write(filename, list.subList(first, list.size()));
+		}
+	}
+	
+	/**
+	 * Opens a file as a lazy stream of Sequence objects.  Sequences are parsed
+	 * only as the stream consumes them, and a parallel stream divides the file
+	 * between threads at Sequence boundaries.  The stream holds the file open
+	 * and should be closed, for example with try-with-resources.
+	 * @param filename	the FASTA file to parse
+	 * @return			a stream of Sequence objects
+	 */
+	public Stream<AcidSequence> streamFile(String filename) {
+		FastaSpliterator spliterator = new FastaSpliterator(filename);
+		return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
 	}
 }
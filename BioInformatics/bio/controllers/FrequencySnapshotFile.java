@@ -0,0 +1,138 @@
+package bio.controllers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import bio.models.AcidSequenceAnalyzer;
+import bio.models.FrequencySnapshot;
+import bio.models.FrequencySnapshot.Shard;
+
+/**
+ * Reads and writes FrequencySnapshots as compact binary files.  Only the acid
+ * codes and length buckets that occur are written, and the file ends with a
+ * checksum, so a snapshot left incomplete by a failed run is refused rather
+ * than merged.
+ *
+ * Layout (big-endian):
+ *   int signature, int version, int shard count, and for every shard:
+ *   UTF canonical path, long start, long end, long file length, int index,
+ *   int count of shards; int count of nonzero acid codes, and for every one:
+ *   byte table (0 nucleic, 1 amino), byte code, long count; int count of
+ *   nonzero length buckets, and for every one: byte bucket, long count;
+ *   then long CRC-32 of everything before it.
+ *
+ * @author Brian J. Walters
+ */
+public class FrequencySnapshotFile {
+	private static final int SIGNATURE = 0x42465331;	// "BFS1"
+	private static final int VERSION = 1;
+
+	/**
+	 * Writes a snapshot to a file.
+	 * @param snapshot		a snapshot
+	 * @param filename		the file to write
+	 * @throws IOException	if the file cannot be written
+	 */
+	public void write(FrequencySnapshot snapshot, String filename) throws IOException {
+		CRC32 checksum = new CRC32();
+		try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+				new BufferedOutputStream(new FileOutputStream(filename)), checksum))) {
+			out.writeInt(SIGNATURE);
+			out.writeInt(VERSION);
+			out.writeInt(snapshot.getShards().size());
+			for (Shard shard : snapshot.getShards()) {
+				out.writeUTF(shard.getFile());
+				out.writeLong(shard.getStart());
+				out.writeLong(shard.getEnd());
+				out.writeLong(shard.getLength());
+				out.writeInt(shard.getIndex());
+				out.writeInt(shard.getCount());
+			}
+			// Write the acid codes that occur...
+			long[][] counts = snapshot.getCounts();
+			int nonzero = 0;
+			for (int table = 0; table < 2; table++) {
+				for (int code = 0; code < AcidSequenceAnalyzer.HISTOGRAM_SIZE; code++) {
+					nonzero += counts[table][code] != 0 ? 1 : 0;
+				}
+			}
+			out.writeInt(nonzero);
+			for (int table = 0; table < 2; table++) {
+				for (int code = 0; code < AcidSequenceAnalyzer.HISTOGRAM_SIZE; code++) {
+					if (counts[table][code] != 0) {
+						out.writeByte(table);
+						out.writeByte(code);
+						out.writeLong(counts[table][code]);
+					}
+				}
+			}
+			// the length buckets that occur...
+			long[] lengths = snapshot.getLengthHistogram();
+			nonzero = 0;
+			for (long count : lengths) {
+				nonzero += count != 0 ? 1 : 0;
+			}
+			out.writeInt(nonzero);
+			for (int bucket = 0; bucket < lengths.length; bucket++) {
+				if (lengths[bucket] != 0) {
+					out.writeByte(bucket);
+					out.writeLong(lengths[bucket]);
+				}
+			}
+			// and the checksum of all of it.
+			out.flush();
+			out.writeLong(checksum.getValue());
+		}
+	}
+
+	/**
+	 * Reads a snapshot from a file.
+	 * @param filename		the file to read
+	 * @return				the snapshot
+	 * @throws IOException	if the file cannot be read, or is not a complete snapshot
+	 */
+	public FrequencySnapshot read(String filename) throws IOException {
+		CRC32 checksum = new CRC32();
+		try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+				new BufferedInputStream(new FileInputStream(filename)), checksum))) {
+			if (in.readInt() != SIGNATURE || in.readInt() != VERSION) {
+				throw new IOException("Not a frequency snapshot: " + filename);
+			}
+			FrequencySnapshot snapshot = new FrequencySnapshot();
+			int shards = in.readInt();
+			for (int i = 0; i < shards; i++) {
+				snapshot.addShard(new Shard(in.readUTF(), in.readLong(), in.readLong(), in.readLong(),
+											in.readInt(), in.readInt()));
+			}
+			long[][] counts = snapshot.getCounts();
+			int entries = in.readInt();
+			for (int i = 0; i < entries; i++) {
+				int table = in.readUnsignedByte();
+				int code = in.readUnsignedByte();
+				counts[table][code] = in.readLong();
+			}
+			long[] lengths = snapshot.getLengthHistogram();
+			entries = in.readInt();
+			for (int i = 0; i < entries; i++) {
+				int bucket = in.readUnsignedByte();
+				lengths[bucket] = in.readLong();
+			}
+			// The checksum covers everything before it.
+			long expected = checksum.getValue();
+			if (in.readLong() != expected) {
+				throw new IOException("Corrupt frequency snapshot: " + filename);
+			}
+			return snapshot;
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("Corrupt frequency snapshot: " + filename, e);
+		}
+	}
+}
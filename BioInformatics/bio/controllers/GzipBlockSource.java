@@ -0,0 +1,86 @@
+package bio.controllers;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Supplies a gzip compressed file, inflated as a single stream.
+ * Files made of several gzip members are inflated member after member.
+ * @author Brian J. Walters
+ */
+class GzipBlockSource implements BlockSource {
+	// File formats
+	static final int PLAIN = 0;
+	static final int GZIP = 1;
+	static final int BGZF = 2;
+
+	private static final int BLOCK_SIZE = 1 << 20;	// Bytes inflated at a time.
+
+	private InputStream input;		// The inflating stream.
+	private ByteBuffer block;		// The block handed out on each call.
+
+	/**
+	 * Opens a gzip file.
+	 * @param filename			the file to inflate
+	 * @throws IOException		if the file cannot be opened
+	 */
+	GzipBlockSource(String filename) throws IOException {
+		this.input = new GZIPInputStream(new FileInputStream(filename), 1 << 16);
+		this.block = ByteBuffer.allocate(BLOCK_SIZE);
+	}
+
+	/**
+	 * Inflates the next block of the file.
+	 */
+	public ByteBuffer nextBlock() throws IOException {
+		byte[] bytes = block.array();
+		int length = 0;
+		int count;
+		while (length < bytes.length && (count = input.read(bytes, length, bytes.length - length)) > 0) {
+			length += count;
+		}
+		if (length == 0) {
+			return null;
+		}
+		block.clear();
+		block.limit(length);
+		return block;
+	}
+
+	/**
+	 * Closes the file.
+	 */
+	public void close() throws IOException {
+		input.close();
+	}
+
+	/**
+	 * Determines the format of a file from its first bytes.  A BGZF file is
+	 * a gzip file whose first member carries a 'BC' extra field holding the
+	 * size of the compressed block.
+	 * @param filename			a file
+	 * @return					PLAIN || GZIP || BGZF
+	 * @throws IOException		if the file cannot be read
+	 */
+	static int detectFormat(String filename) throws IOException {
+		byte[] header = new byte[18];
+		int length = 0;
+		try (InputStream in = new FileInputStream(filename)) {
+			int count;
+			while (length < header.length && (count = in.read(header, length, header.length - length)) > 0) {
+				length += count;
+			}
+		}
+		if (length < 2 || (header[0] & 0xff) != 0x1f || (header[1] & 0xff) != 0x8b) {
+			return PLAIN;
+		}
+		if (length == 18 && (header[3] & 0x04) != 0 && 
+				header[12] == 'B' && header[13] == 'C' && header[14] == 2 && header[15] == 0) {
+			return BGZF;
+		}
+		return GZIP;
+	}
+}
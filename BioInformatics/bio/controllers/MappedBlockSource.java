@@ -0,0 +1,53 @@
+package bio.controllers;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Supplies an uncompressed file as a series of memory-mapped windows.
+ * @author Brian J. Walters
+ */
+class MappedBlockSource implements BlockSource {
+	private static final long WINDOW_SIZE = 1L << 28;	// Bytes mapped at a time (256 MB).
+
+	private RandomAccessFile file;		// The file.
+	private FileChannel channel;		// The channel used to map the file.
+	private long fileSize;				// The size of the file in bytes.
+	private long next;					// The offset of the next window.
+
+	/**
+	 * Opens a file for mapping.
+	 * @param filename			the file to map
+	 * @param start				the offset of the first window
+	 * @throws IOException		if the file cannot be opened
+	 */
+	MappedBlockSource(String filename, long start) throws IOException {
+		this.file = new RandomAccessFile(filename, "r");
+		this.channel = file.getChannel();
+		this.fileSize = channel.size();
+		this.next = Math.min(start, fileSize);
+	}
+
+	/**
+	 * Maps the region of the file following the previous one.
+	 */
+	public ByteBuffer nextBlock() throws IOException {
+		if (next >= fileSize) {
+			return null;
+		}
+		long size = Math.min(WINDOW_SIZE, fileSize - next);
+		ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, next, size);
+		next += size;
+		return window;
+	}
+
+	/**
+	 * Closes the file.
+	 */
+	public void close() throws IOException {
+		channel.close();
+		file.close();
+	}
+}
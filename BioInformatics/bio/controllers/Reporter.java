@@ -5,6 +5,13 @@ import java.util.Hashtable;
 import java.util.List;
 
 import bio.models.AcidSequence;
+import bio.models.AcidSequenceAnalyzer;
+import bio.models.ApproximateKmerCounter;
+import bio.models.CodonUsage;
+import bio.models.CountMinSketch;
+import bio.models.FastqStatistics;
+import bio.models.GeneticCode;
+import bio.models.KmerCounter;
 
 /**
  * Produces a report on the total number of acids and the
@@ -55,6 +62,184 @@ public class Reporter {
 		pw.flush();
 	}
 	
+	/**
+	 * Write a report of the total number of acids and their frequencies
+	 * to a file, from histograms whose counts may be too large for the
+	 * hashtables of determineTotals.
+	 * @param counts		the nucleic acid [0] and amino acid [1] histograms
+	 * @param reportTitle	the title of the report
+	 */
+	public void createFrequencyReport(long[][] counts, String reportTitle) {
+		pw.println(reportTitle);
+		pw.println("Totals:");
+		pw.println("  Nucleic Acids:");
+		printFrequencies(counts[0], AcidSequenceAnalyzer.nucleicAcidCodes);
+		pw.println("\n");
+		pw.println("  Amino Acids:");
+		printFrequencies(counts[1], AcidSequenceAnalyzer.aminoAcidCodes);
+		pw.println("\n");
+		pw.flush();
+	}
+	
+	/**
+	 * Write the count and frequency of every acid code that occurs.
+	 * @param histogram		a histogram indexed by acid code
+	 * @param codes			the acid codes to write
+	 */
+	private void printFrequencies(long[] histogram, String codes) {
+		long total = 0;
+		for (int i = 0; i < codes.length(); i++) {
+			total += histogram[codes.charAt(i)];
+		}
+		for (int i = 0; i < codes.length(); i++) {
+			long count = histogram[codes.charAt(i)];
+			if (count != 0) {
+				pw.println("  " + codes.charAt(i) + ": " + count + ", " + ((double) count / total));
+			}
+		}
+	}
+	
+	/**
+	 * Write a report of the count and frequency of every codon over all six
+	 * reading frames, with its amino acid and its count in each frame.
+	 * @param usage			the codon counts
+	 * @param reportTitle	the title of the report
+	 */
+	public void createCodonUsageReport(CodonUsage usage, String reportTitle) {
+		long total = usage.getTotalCount();
+		pw.println(reportTitle);
+		pw.println("Codons: " + total);
+		pw.println("\n");
+		pw.println("  Codons (+1, +2, +3, -1, -2, -3):");
+		for (int codon = 0; codon < GeneticCode.CODONS; codon++) {
+			long count = usage.getCount(codon);
+			pw.print("  " + GeneticCode.codonOf(codon) + " (" + (char) GeneticCode.translate(codon) + "): " 
+					 + count + ", " + ((double) count / total) + " [");
+			for (int frame = 0; frame < CodonUsage.FRAMES; frame++) {
+				pw.print((frame > 0 ? ", " : "") + usage.getCount(frame, codon));
+			}
+			pw.println("]");
+		}
+		pw.println("\n");
+		pw.flush();
+	}
+	
+	/**
+	 * Write a report of the number of sequences of each length, in
+	 * ranges of powers of two.
+	 * @param histogram		the number of sequences in each length bucket
+	 * @param reportTitle	the title of the report
+	 */
+	public void createLengthReport(long[] histogram, String reportTitle) {
+		long sequences = 0;
+		for (long count : histogram) {
+			sequences += count;
+		}
+		pw.println(reportTitle);
+		pw.println("Sequences: " + sequences);
+		pw.println("\n");
+		pw.println("  Lengths:");
+		for (int bucket = 0; bucket < histogram.length; bucket++) {
+			if (histogram[bucket] != 0) {
+				long low = bucket == 0 ? 0 : 1L << (bucket - 1);
+				long high = bucket == 0 ? 0 : (1L << bucket) - 1;
+				pw.println("  " + low + "-" + high + ": " + histogram[bucket] + ", " 
+						   + ((double) histogram[bucket] / sequences));
+			}
+		}
+		pw.println("\n");
+		pw.flush();
+	}
+	
+	/**
+	 * Write a report of the quality scores and base composition of
+	 * the reads in FASTQ files.
+	 * @param statistics	the statistics gathered over the reads
+	 * @param reportTitle	the title of the report
+	 */
+	public void createQualityReport(FastqStatistics statistics, String reportTitle) {
+		pw.println(reportTitle);
+		pw.println("Reads: " + statistics.getReadCount());
+		pw.println("Bases: " + statistics.getBaseCount());
+		pw.printf("Mean Quality: %8.4f\n", statistics.getMeanQuality());
+		pw.println("\n");
+		pw.println("  Quality Scores:");
+		for (int q = 0; q <= FastqStatistics.MAX_QUALITY; q++) {
+			if (statistics.getQualityCount(q) > 0) {
+				pw.println("  " + q + ": " + statistics.getQualityCount(q));
+			}
+		}
+		pw.println("\n");
+		pw.println("  Positions (mean quality, " + FastqStatistics.BASES + " frequencies):");
+		for (int p = 0; p < statistics.getMaxLength(); p++) {
+			pw.printf("  %d: %8.4f", p + 1, statistics.getMeanQuality(p));
+			for (char base : FastqStatistics.BASES.toCharArray()) {
+				pw.printf(", %8.4f", statistics.getBaseFrequency(p, base));
+			}
+			pw.println();
+		}
+		pw.println("\n");
+		pw.flush();
+	}
+	
+	/**
+	 * Write a report of the count and frequency of every k-mer, in the
+	 * same layout as the frequency report.
+	 * @param counter		the k-mer counts
+	 * @param reportTitle	the title of the report
+	 */
+	public void createKmerReport(KmerCounter counter, String reportTitle) {
+		pw.println(reportTitle);
+		pw.println("k: " + counter.getK() + (counter.isCanonical() ? " (canonical)" : ""));
+		pw.println("Total k-mers: " + counter.getTotalCount());
+		pw.println("Distinct k-mers: " + counter.getDistinctCount());
+		pw.println("\n");
+		pw.println("  K-mers:");
+		for (long key : counter.getTable().getKeys()) {
+			int count = counter.getTable().get(key);
+			pw.println("  " + counter.decode(key) + ": " + count + ", " 
+					   + ((double) count / counter.getTotalCount()));
+		}
+		pw.println("\n");
+		pw.flush();
+	}
+	
+	/**
+	 * Write a report of approximate k-mer statistics with their error bounds.
+	 * The estimated count of every k-mer is listed only while there are few
+	 * enough possible k-mers (k of at most 6).
+	 * @param counter		the approximate k-mer counts
+	 * @param reportTitle	the title of the report
+	 */
+	public void createApproximateKmerReport(ApproximateKmerCounter counter, String reportTitle) {
+		CountMinSketch sketch = counter.getSketch();
+		pw.println(reportTitle);
+		pw.println("k: " + counter.getK() + (counter.isCanonical() ? " (canonical)" : ""));
+		pw.println("Total k-mers: " + counter.getTotalCount());
+		pw.printf("Distinct k-mers: ~%d (standard error %.2f%%)%n", counter.getDistinctCount(),
+				  100 * counter.getDistinctEstimator().getStandardError());
+		pw.printf("Count error: at most +%.1f (%.4f%% of total) with probability %.4f%n",
+				  sketch.getErrorBound(), 100 * sketch.getError(), sketch.getConfidence());
+		if (counter.getK() <= 6) {
+			pw.println("\n");
+			pw.println("  K-mers:");
+			for (long key = 0; key < 1L << (2 * counter.getK()); key++) {
+				String kmer = counter.decode(key);
+				// In canonical mode, only list the k-mers that are counted.
+				if (counter.encode(kmer) != key) {
+					continue;
+				}
+				long count = sketch.estimate(key);
+				if (count > 0) {
+					pw.println("  " + kmer + ": ~" + count + ", " 
+							   + ((double) count / counter.getTotalCount()));
+				}
+			}
+		}
+		pw.println("\n");
+		pw.flush();
+	}
+	
 	/**
 	 * Writes two aligned sequences to a file.
 	 * @param totals		the totals for each acid code for both
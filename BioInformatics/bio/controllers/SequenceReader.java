@@ -0,0 +1,185 @@
+package bio.controllers;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+
+import bio.models.AcidSequence;
+
+/**
+ * Reads the records of a sequence file one Sequence at a time.  The file's
+ * bytes arrive in large blocks (memory-mapped, or inflated for compressed
+ * files) and are scanned for newlines directly, so no String is built for
+ * a line unless it is a header.
+ * @author Brian J. Walters
+ */
+public abstract class SequenceReader implements Closeable {
+	private BlockSource source;			// The blocks of the file.
+	private ByteBuffer window;			// The current block of the file.
+	private long windowStart;			// The file offset of the current block.
+	private int position;				// The next unread byte in the current block.
+	private int limit;					// The number of bytes in the current block.
+
+	protected long end;					// No Sequence may begin at or after this offset.
+	protected byte[] line;				// The bytes of the current line.
+
+	/**
+	 * Opens a sequence file for reading from an offset.
+	 * @param filename			the file to read
+	 * @param start				the offset of the first byte to read, which
+	 *                          must be the start of a line
+	 * @param end				no Sequence may begin at or after this offset
+	 * @throws IOException		if the file cannot be opened
+	 */
+	protected SequenceReader(String filename, long start, long end) throws IOException {
+		this.source = BlockSource.open(filename, start);
+		this.windowStart = start;
+		this.position = 0;
+		this.limit = 0;
+		this.end = end;
+		this.line = new byte[8192];
+	}
+
+	/**
+	 * Opens a byte range of a FASTA or FASTQ file, choosing the reader by 
+	 * the first character of the file.  The range holds every Sequence whose
+	 * record begins at or after the start offset and before the end offset.
+	 * A Sequence that begins in the range is read in full, even if it continues
+	 * past the end offset, so adjacent ranges together hold every Sequence in
+	 * the file exactly once.
+	 * NOTE: Compressed files can only be read from their start.
+	 * @param filename			the FASTA or FASTQ file to read
+	 * @param start				the offset of the first byte of the range
+	 * @param end				the offset following the last byte of the range
+	 * @return					a reader over the range
+	 * @throws IOException		if the file cannot be opened
+	 */
+	public static SequenceReader open(String filename, long start, long end) throws IOException {
+		if (isFastq(filename)) {
+			return new FastqReader(filename, start, end);
+		}
+		return new FastaReader(filename, start, end);
+	}
+
+	/**
+	 * Whether a file is compressed.  A compressed file cannot be 
+	 * divided into byte ranges.
+	 * @param filename		a sequence file
+	 * @return				true if the file is gzip compressed
+	 */
+	public static boolean isCompressed(String filename) {
+		return BlockSource.isCompressed(filename);
+	}
+
+	/**
+	 * Whether a file is in FASTQ format, judged by its first 
+	 * non-blank character being '@'.  Only the start of the file is read, 
+	 * and a compressed file is inflated as a plain stream.
+	 * @param filename			a sequence file
+	 * @return					true if the file is a FASTQ file
+	 * @throws IOException		if the file cannot be read
+	 */
+	public static boolean isFastq(String filename) throws IOException {
+		try (InputStream file = new FileInputStream(filename);
+			 InputStream input = new BufferedInputStream(isCompressed(filename) ? new GZIPInputStream(file) : file)) {
+			int b;
+			while ((b = input.read()) != -1) {
+				if (b != '\n' && b != '\r' && b != ' ' && b != '\t') {
+					return b == '@';
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the next Sequence from the file.
+	 * @return					the next Sequence, or null if the range is finished
+	 * @throws IOException		if the file cannot be read
+	 */
+	public abstract AcidSequence nextSequence() throws IOException;
+
+	/**
+	 * The file offset of the next unread byte, which is the start of
+	 * the line that readLine() will read next.
+	 * @return		a file offset
+	 */
+	protected long getOffset() {
+		return windowStart + position;
+	}
+
+	/**
+	 * Copies the next line of the file, without its line terminator,
+	 * into the line buffer.
+	 * @return					the length of the line, or -1 at the end of the file
+	 * @throws IOException		if the file cannot be read
+	 */
+	protected int readLine() throws IOException {
+		if (position >= limit && !nextWindow()) {
+			return -1;
+		}
+		int length = 0;
+		while (true) {
+			// Scan the block for the end of the line.
+			int start = position;
+			int newline = start;
+			while (newline < limit && window.get(newline) != '\n') {
+				newline++;
+			}
+			// Copy the bytes of the line seen so far.
+			int count = newline - start;
+			if (length + count > line.length) {
+				byte[] larger = new byte[Math.max(line.length * 2, length + count)];
+				System.arraycopy(line, 0, larger, 0, length);
+				line = larger;
+			}
+			window.position(start);
+			window.get(line, length, count);
+			length += count;
+			// If the newline was found, skip over it and finish.
+			if (newline < limit) {
+				position = newline + 1;
+				break;
+			}
+			// Otherwise the line continues into the next block of the file.
+			position = limit;
+			if (!nextWindow()) {
+				break;
+			}
+		}
+		// Drop the carriage return of a Windows line ending.
+		if (length > 0 && line[length - 1] == '\r') {
+			length--;
+		}
+		return length;
+	}
+
+	/**
+	 * Moves on to the block of the file following the current one.
+	 * @return					false if there are no bytes left
+	 * @throws IOException		if the file cannot be read
+	 */
+	private boolean nextWindow() throws IOException {
+		ByteBuffer next = source.nextBlock();
+		if (next == null) {
+			return false;
+		}
+		windowStart += limit;
+		window = next;
+		position = 0;
+		limit = next.limit();
+		return true;
+	}
+
+	/**
+	 * Closes the file.
+	 */
+	public void close() throws IOException {
+		window = null;
+		source.close();
+	}
+}
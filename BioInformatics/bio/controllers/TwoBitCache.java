@@ -0,0 +1,371 @@
+package bio.controllers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import bio.models.AcidSequence;
+
+/**
+ * A packed binary copy of a DNA FASTA file, kept beside the FASTA file so that
+ * later runs can skip parsing its text.  The layout follows the UCSC .2bit
+ * format: each nucleotide is stored in 2 bits (T=0, C=1, A=2, G=3), with runs
+ * of N and runs of lowercase nucleotides stored as blocks of start and size.
+ * Unlike .2bit, the full FASTA description of each Sequence is kept.
+ * The cache records the size and modification time of the FASTA file, and is
+ * only used while both still match.
+ *
+ * Layout (big-endian):
+ *   int signature, int version, int sequence count, long FASTA file size,
+ *   long FASTA modification time,
+ *   then for every Sequence: int description length, description bytes, long data offset,
+ *   then for every Sequence at its data offset: int size, int N block count,
+ *   N block starts, N block sizes, int mask block count, mask block starts,
+ *   mask block sizes, and (size + 3) / 4 bytes of packed nucleotides.
+ *
+ * @author Brian J. Walters
+ */
+public class TwoBitCache {
+	private static final int SIGNATURE = 0x32424331;	// "2BC1"
+	private static final int VERSION = 1;
+	private static final long WINDOW_SIZE = 1L << 28;	// Bytes mapped at a time (256 MB).
+
+	private static final byte[] CODES = new byte[256];		// Nucleotide to 2-bit code, or -1.
+	private static final byte[] BASES = {'T', 'C', 'A', 'G'};	// 2-bit code to nucleotide.
+	private static final byte[] UNPACKED = new byte[256 * 4];	// Packed byte to four nucleotides.
+	static {
+		for (int i = 0; i < CODES.length; i++) {
+			CODES[i] = -1;
+		}
+		for (int packed = 0; packed < 256; packed++) {
+			for (int j = 0; j < 4; j++) {
+				UNPACKED[packed * 4 + j] = BASES[(packed >>> (6 - 2 * j)) & 3];
+			}
+		}
+		CODES['T'] = 0; CODES['t'] = 0;
+		CODES['C'] = 1; CODES['c'] = 1;
+		CODES['A'] = 2; CODES['a'] = 2;
+		CODES['G'] = 3; CODES['g'] = 3;
+		CODES['N'] = 0; CODES['n'] = 0;
+	}
+
+	/**
+	 * The name of the cache file for a FASTA file.
+	 * @param filename		a FASTA file
+	 * @return				the name of its cache file
+	 */
+	public static String getCacheFilename(String filename) {
+		return filename + ".2bc";
+	}
+
+	/**
+	 * Whether a FASTA file has a cache written from the file as it is now,
+	 * judged by the size and modification time recorded in the cache.  A file
+	 * restored with an older time, or changed without changing its size, does
+	 * not match.
+	 * @param filename		a FASTA file
+	 * @return				true if the cache can be read in place of the file
+	 */
+	public boolean isCurrent(String filename) {
+		File cache = new File(getCacheFilename(filename));
+		if (!cache.isFile()) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cache), 32))) {
+			if (in.readInt() != SIGNATURE || in.readInt() != VERSION) {
+				return false;
+			}
+			in.readInt();
+			return matches(filename, in.readLong(), in.readLong());
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Whether a FASTA file has the size and modification time recorded in a cache.
+	 * @param filename		a FASTA file
+	 * @param size			the size recorded in the cache
+	 * @param modified		the modification time recorded in the cache
+	 * @return				true if both match the file
+	 */
+	private boolean matches(String filename, long size, long modified) {
+		File fasta = new File(filename);
+		return fasta.length() == size && fasta.lastModified() == modified;
+	}
+
+	/**
+	 * Reads the Sequences of a FASTA file from its cache.  The cache is
+	 * memory-mapped in large windows and each Sequence is unpacked from the
+	 * mapping straight into the buffer of its Sequence object.
+	 * @param filename		a FASTA file
+	 * @return				a list of Sequence objects, or null if the cache
+	 *                      cannot be read or does not match the file
+	 */
+	public List<AcidSequence> read(String filename) {
+		List<AcidSequence> list = new ArrayList<AcidSequence>();
+		return read(filename, list) ? list : null;
+	}
+
+	/**
+	 * Reads the Sequences of a FASTA file from its cache into a list, one
+	 * at a time, so that a list which copies its Sequences elsewhere (such
+	 * as an OffHeapSequenceStore) never holds more than one on the heap.
+	 * @param filename		a FASTA file
+	 * @param list			the list to add the Sequences to
+	 * @return				false if the cache cannot be read or does not match
+	 *                      the file, in which case the list may hold some of them
+	 */
+	public boolean read(String filename, List<AcidSequence> list) {
+		try (RandomAccessFile file = new RandomAccessFile(getCacheFilename(filename), "r")) {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+											Math.min(channel.size(), Integer.MAX_VALUE));
+			if (header.getInt() != SIGNATURE || header.getInt() != VERSION) {
+				return false;
+			}
+			int count = header.getInt();
+			if (!matches(filename, header.getLong(), header.getLong())) {
+				return false;
+			}
+			// Read the index...
+			String[] descriptions = new String[count];
+			long[] offsets = new long[count];
+			for (int i = 0; i < count; i++) {
+				byte[] description = new byte[header.getInt()];
+				header.get(description);
+				descriptions[i] = new String(description, StandardCharsets.ISO_8859_1);
+				offsets[i] = header.getLong();
+			}
+			// and then unpack every Sequence, mapping a new window
+			// whenever a Sequence lies past the end of the current one.
+			ByteBuffer window = null;
+			long windowStart = 0;
+			for (int i = 0; i < count; i++) {
+				long end = (i + 1 < count) ? offsets[i + 1] : channel.size();
+				if (window == null || end > windowStart + window.capacity()) {
+					windowStart = offsets[i];
+					long size = Math.max(WINDOW_SIZE, end - windowStart);
+					window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+										 Math.min(size, channel.size() - windowStart));
+				}
+				window.position((int) (offsets[i] - windowStart));
+				list.add(new AcidSequence(descriptions[i], unpack(window)));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Writes a cache for a FASTA file.  Nothing is written unless every
+	 * Sequence holds only A, C, G, T and N, in upper or lower case.  The
+	 * cache is optional, so a cache that cannot be written, such as in a
+	 * read-only directory, is left out without an error.
+	 * @param filename		the FASTA file the Sequences were read from
+	 * @param list			the Sequences of the file
+	 * @return				true if the cache was written
+	 */
+	public boolean write(String filename, List<AcidSequence> list) {
+		// Find the N and mask blocks of every Sequence, which also
+		// determines whether the Sequences can be packed at all.
+		List<int[][]> blocks = new ArrayList<int[][]>();
+		for (AcidSequence sequence : list) {
+			int[][] sequenceBlocks = findBlocks(sequence);
+			if (sequenceBlocks == null) {
+				return false;
+			}
+			blocks.add(sequenceBlocks);
+		}
+
+		File cache = new File(getCacheFilename(filename));
+		File temporary = new File(cache.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+			// Header
+			out.writeInt(SIGNATURE);
+			out.writeInt(VERSION);
+			out.writeInt(list.size());
+			out.writeLong(new File(filename).length());
+			out.writeLong(new File(filename).lastModified());
+			// Index
+			List<byte[]> descriptions = new ArrayList<byte[]>();
+			long offset = 28;
+			for (AcidSequence sequence : list) {
+				byte[] description = sequence.getDescription().getBytes(StandardCharsets.ISO_8859_1);
+				descriptions.add(description);
+				offset += 4 + description.length + 8;
+			}
+			for (int i = 0; i < list.size(); i++) {
+				out.writeInt(descriptions.get(i).length);
+				out.write(descriptions.get(i));
+				out.writeLong(offset);
+				int[][] sequenceBlocks = blocks.get(i);
+				offset += 4 + 4 + 4 * (sequenceBlocks[0].length + sequenceBlocks[1].length)
+							+ 4 + 4 * (sequenceBlocks[2].length + sequenceBlocks[3].length)
+							+ (list.get(i).getCount() + 3) / 4;
+			}
+			// Sequences
+			for (int i = 0; i < list.size(); i++) {
+				AcidSequence sequence = list.get(i);
+				int[][] sequenceBlocks = blocks.get(i);
+				out.writeInt(sequence.length());
+				for (int b = 0; b < 4; b += 2) {
+					out.writeInt(sequenceBlocks[b].length);
+					for (int start : sequenceBlocks[b]) {
+						out.writeInt(start);
+					}
+					for (int size : sequenceBlocks[b + 1]) {
+						out.writeInt(size);
+					}
+				}
+				pack(sequence, out);
+			}
+		} catch (IOException e) {
+			temporary.delete();
+			return false;
+		}
+		cache.delete();
+		return temporary.renameTo(cache);
+	}
+
+	/**
+	 * Finds the runs of N and the runs of lowercase nucleotides in a sequence.
+	 * @param sequence		a Sequence object
+	 * @return				the N block starts, N block sizes, mask block starts and
+	 *                      mask block sizes, or null if the sequence holds a code
+	 *                      other than A, C, G, T or N
+	 */
+	private int[][] findBlocks(AcidSequence sequence) {
+		BlockList nBlocks = new BlockList();
+		BlockList maskBlocks = new BlockList();
+		for (int i = 0; i < sequence.length(); i++) {
+			int c = sequence.byteAt(i) & 0xff;
+			if (CODES[c] < 0) {
+				return null;
+			}
+			if (c == 'N' || c == 'n') {
+				nBlocks.add(i);
+			}
+			if (c >= 'a') {
+				maskBlocks.add(i);
+			}
+		}
+		return new int[][] {nBlocks.starts(), nBlocks.sizes(), maskBlocks.starts(), maskBlocks.sizes()};
+	}
+
+	/**
+	 * Writes a sequence of nucleotides packed four to a byte, first
+	 * nucleotide in the highest bits.
+	 * @param sequence			a Sequence of nucleotides
+	 * @param out				the cache file
+	 * @throws IOException		if the cache cannot be written
+	 */
+	private void pack(AcidSequence sequence, DataOutputStream out) throws IOException {
+		int length = sequence.length();
+		for (int i = 0; i < length; i += 4) {
+			int packed = 0;
+			for (int j = i; j < i + 4; j++) {
+				packed <<= 2;
+				if (j < length) {
+					packed |= CODES[sequence.byteAt(j) & 0xff];
+				}
+			}
+			out.writeByte(packed);
+		}
+	}
+
+	/**
+	 * Unpacks one cached Sequence.
+	 * @param record		the cached Sequence, positioned at its size
+	 * @return				the acid codes of the Sequence
+	 */
+	private byte[] unpack(ByteBuffer record) {
+		int size = record.getInt();
+		int[][] blocks = new int[4][];
+		for (int b = 0; b < 4; b += 2) {
+			int count = record.getInt();
+			blocks[b] = new int[count];
+			blocks[b + 1] = new int[count];
+			for (int i = 0; i < count; i++) {
+				blocks[b][i] = record.getInt();
+			}
+			for (int i = 0; i < count; i++) {
+				blocks[b + 1][i] = record.getInt();
+			}
+		}
+		// Unpack the nucleotides four at a time...
+		byte[] residues = new byte[size];
+		int whole = size & ~3;
+		for (int i = 0; i < whole; i += 4) {
+			int packed = (record.get() & 0xff) * 4;
+			residues[i] = UNPACKED[packed];
+			residues[i + 1] = UNPACKED[packed + 1];
+			residues[i + 2] = UNPACKED[packed + 2];
+			residues[i + 3] = UNPACKED[packed + 3];
+		}
+		if (whole < size) {
+			System.arraycopy(UNPACKED, (record.get() & 0xff) * 4, residues, whole, size - whole);
+		}
+		// then restore the runs of N...
+		for (int i = 0; i < blocks[0].length; i++) {
+			Arrays.fill(residues, blocks[0][i], blocks[0][i] + blocks[1][i], (byte) 'N');
+		}
+		// and the lowercase nucleotides.
+		for (int i = 0; i < blocks[2].length; i++) {
+			for (int j = blocks[2][i]; j < blocks[2][i] + blocks[3][i]; j++) {
+				residues[j] = (byte) Character.toLowerCase(residues[j]);
+			}
+		}
+		return residues;
+	}
+
+	/**
+	 * A growing list of blocks of consecutive positions.
+	 */
+	private static class BlockList {
+		private int[] starts = new int[4];
+		private int[] sizes = new int[4];
+		private int count = 0;
+
+		/**
+		 * Adds a position, extending the last block if the position follows it.
+		 * @param position		a position in a sequence
+		 */
+		void add(int position) {
+			if (count > 0 && starts[count - 1] + sizes[count - 1] == position) {
+				sizes[count - 1]++;
+				return;
+			}
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+				sizes = Arrays.copyOf(sizes, count * 2);
+			}
+			starts[count] = position;
+			sizes[count] = 1;
+			count++;
+		}
+
+		int[] starts() {
+			return Arrays.copyOf(starts, count);
+		}
+
+		int[] sizes() {
+			return Arrays.copyOf(sizes, count);
+		}
+	}
+}
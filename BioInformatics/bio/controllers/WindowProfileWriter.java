@@ -0,0 +1,76 @@
+package bio.controllers;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import bio.models.AcidSequence;
+import bio.models.WindowProfiler;
+
+/**
+ * Streams the sliding window profiles of Sequences to a compact binary file,
+ * one Sequence at a time, so that no profile is held in memory.  The position
+ * of each window follows from its index and the step, so only its values are
+ * written.
+ *
+ * Layout (big-endian):
+ *   int signature, int version, int window size, int step,
+ *   then for every Sequence: int description length, description bytes,
+ *   int window count, and for every window: float GC content, float GC skew,
+ *   float AT skew, float entropy.
+ *
+ * @author Brian J. Walters
+ */
+public class WindowProfileWriter implements Closeable {
+	private static final int SIGNATURE = 0x42575031;	// "BWP1"
+	private static final int VERSION = 0;
+
+	private DataOutputStream out;		// The profile file.
+	private WindowProfiler profiler;	// Profiles the windows of each Sequence.
+
+	/**
+	 * Creates a profile file.
+	 * @param filename		the file to write
+	 * @param windowSize	the number of acid codes in a window
+	 * @param step			the distance from one window to the next
+	 * @throws IOException	if the file cannot be created
+	 */
+	public WindowProfileWriter(String filename, int windowSize, int step) throws IOException {
+		this.profiler = new WindowProfiler(windowSize, step);
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename), 1 << 16));
+		out.writeInt(SIGNATURE);
+		out.writeInt(VERSION);
+		out.writeInt(windowSize);
+		out.writeInt(step);
+	}
+
+	/**
+	 * Profiles a Sequence and writes the profile of every window.
+	 * @param sequence		a Sequence of nucleotides
+	 * @throws IOException	if the file cannot be written
+	 */
+	public void write(AcidSequence sequence) throws IOException {
+		byte[] description = sequence.getDescription().getBytes(StandardCharsets.UTF_8);
+		out.writeInt(description.length);
+		out.write(description);
+		out.writeInt(profiler.getWindowCount(sequence.length()));
+		profiler.profile(sequence);
+		while (profiler.next()) {
+			out.writeFloat((float) profiler.getGcContent());
+			out.writeFloat((float) profiler.getGcSkew());
+			out.writeFloat((float) profiler.getAtSkew());
+			out.writeFloat((float) profiler.getEntropy());
+		}
+	}
+
+	/**
+	 * Flushes and closes the profile file.
+	 * @throws IOException	if the file cannot be written
+	 */
+	public void close() throws IOException {
+		out.close();
+	}
+}
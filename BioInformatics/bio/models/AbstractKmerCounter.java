@@ -0,0 +1,172 @@
+package bio.models;
+
+import java.util.List;
+
+/**
+ * Finds the k-mers (every run of k consecutive nucleotides) in nucleic acid
+ * sequences and passes each to a subclass to be counted.  Each k-mer is encoded
+ * in 2 bits per nucleotide (A=0, C=1, G=2, T=3) and rolled along the sequence
+ * in a long, so k may be from 1 to 31.  A k-mer holding any code other than
+ * A, C, G, T or U (such as N) is skipped.  In canonical mode a k-mer and its
+ * reverse complement are counted together, under whichever of the two encodes
+ * to the smaller value, so the counts do not depend on the strand that was
+ * sequenced.
+ * @author Brian J. Walters
+ */
+public abstract class AbstractKmerCounter {
+	// The largest k whose 2-bit encoding fits in a long without its sign bit.
+	public static final int MAX_K = 31;
+
+	private static final byte[] CODES = new byte[256];		// Nucleotide to 2-bit code, or -1.
+	private static final char[] BASES = {'A', 'C', 'G', 'T'};	// 2-bit code to nucleotide.
+	static {
+		for (int i = 0; i < CODES.length; i++) {
+			CODES[i] = -1;
+		}
+		CODES['A'] = 0; CODES['a'] = 0;
+		CODES['C'] = 1; CODES['c'] = 1;
+		CODES['G'] = 2; CODES['g'] = 2;
+		CODES['T'] = 3; CODES['t'] = 3;
+		CODES['U'] = 3; CODES['u'] = 3;
+	}
+
+	protected int k;				// The length of the k-mers.
+	protected boolean canonical;	// True if k-mers are counted with their reverse complements.
+	protected long total;			// The number of k-mers counted.
+
+	/**
+	 * Prepares to count k-mers.
+	 * @param k				the length of the k-mers, from 1 to MAX_K
+	 * @param canonical		true to count each k-mer with its reverse complement
+	 */
+	protected AbstractKmerCounter(int k, boolean canonical) {
+		if (k < 1 || k > MAX_K) {
+			throw new IllegalArgumentException("k must be from 1 to " + MAX_K + ": " + k);
+		}
+		this.k = k;
+		this.canonical = canonical;
+		this.total = 0;
+	}
+
+	/**
+	 * Counts one k-mer.
+	 * @param kmer		a 2-bit encoded k-mer, canonical in canonical mode
+	 */
+	protected abstract void count(long kmer);
+
+	/**
+	 * Counts every k-mer in a sequence.
+	 * @param sequence		a Sequence of nucleotides
+	 */
+	public void add(AcidSequence sequence) {
+		long mask = (1L << (2 * k)) - 1;
+		int shift = 2 * (k - 1);
+		long forward = 0;	// The k-mer ending at the current position.
+		long reverse = 0;	// Its reverse complement.
+		int valid = 0;		// The number of nucleotides since the last other code.
+		byte[] block = new byte[Math.min(1 << 16, sequence.length())];
+		// Copy the sequence out a block at a time...
+		for (int from = 0; from < sequence.length(); from += block.length) {
+			int length = Math.min(block.length, sequence.length() - from);
+			sequence.copyResidues(from, block, 0, length);
+			// and roll every nucleotide into the k-mer.
+			for (int i = 0; i < length; i++) {
+				int code = CODES[block[i] & 0xff];
+				if (code < 0) {
+					valid = 0;
+					continue;
+				}
+				forward = ((forward << 2) | code) & mask;
+				reverse = (reverse >>> 2) | ((long) (3 - code) << shift);
+				if (++valid >= k) {
+					count(canonical ? Math.min(forward, reverse) : forward);
+					total++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts every k-mer in a list of sequences.  Sequences that are
+	 * not nucleic acids are skipped once their types are determined.
+	 * @param list		a list of Sequence objects
+	 */
+	public void add(List<AcidSequence> list) {
+		for (AcidSequence sequence : list) {
+			if (sequence.getType() != AcidSequence.PROTEIN) {
+				add(sequence);
+			}
+		}
+	}
+
+	/**
+	 * Encodes a k-mer as it is counted.  In canonical mode, a k-mer and its
+	 * reverse complement have the same encoding.
+	 * @param kmer		k nucleotides
+	 * @return			the 2-bit encoded k-mer, or -1 if it is not k nucleotides
+	 */
+	public long encode(String kmer) {
+		if (kmer.length() != k) {
+			return -1;
+		}
+		long forward = 0;
+		long reverse = 0;
+		for (int i = 0; i < k; i++) {
+			int code = CODES[kmer.charAt(i) & 0xff];
+			if (code < 0) {
+				return -1;
+			}
+			forward = (forward << 2) | code;
+			reverse |= (long) (3 - code) << (2 * i);
+		}
+		return canonical ? Math.min(forward, reverse) : forward;
+	}
+
+	/**
+	 * Decodes a k-mer from its 2-bit encoding.
+	 * @param key		a 2-bit encoded k-mer
+	 * @return			its k nucleotides
+	 */
+	public String decode(long key) {
+		char[] kmer = new char[k];
+		for (int i = k - 1; i >= 0; i--) {
+			kmer[i] = BASES[(int) (key & 3)];
+			key >>>= 2;
+		}
+		return new String(kmer);
+	}
+
+	/**
+	 * Checks that another counter counts the same k-mers, so it can be merged.
+	 * @param other		another counter
+	 */
+	protected void checkMergeable(AbstractKmerCounter other) {
+		if (other.k != k || other.canonical != canonical) {
+			throw new IllegalArgumentException("Cannot merge counts of different k-mers.");
+		}
+	}
+
+	/**
+	 * The length of the k-mers.
+	 * @return	k
+	 */
+	public int getK() {
+		return k;
+	}
+
+	/**
+	 * Whether k-mers are counted with their reverse complements.
+	 * @return	true in canonical mode
+	 */
+	public boolean isCanonical() {
+		return canonical;
+	}
+
+	/**
+	 * The number of k-mers counted.
+	 * @return	the total of every count
+	 */
+	public long getTotalCount() {
+		return total;
+	}
+}
@@ -1,9 +1,12 @@
 package bio.models;
 
-import org.apache.commons.lang3.StringUtils;
+import java.nio.charset.StandardCharsets;
 
 /**
  * A Sequence of either nucleic or amino acids.
+ * The acid codes are kept in a double-ended buffer with free space on both
+ * sides, so appending and prepending are both amortized constant time.
+ * Subsequences share the buffer until either side is changed.
  * @author Brian J. Walters
  */
 public class AcidSequence {
@@ -12,16 +15,20 @@ public class AcidSequence {
 	public static final int RNA = 2;
 	public static final int PROTEIN = 3;
 	
+	private static final int INITIAL_CAPACITY = 16;
+	
 	String description;		// The description of a sequence provided by a FASTA file
-	StringBuilder sequence;	// A sequence of acid codes
+	byte[] residues;		// A sequence of acid codes, one byte per code
+	int start;				// The position of the first acid code in residues
+	int count;				// The number of acid codes in use in residues
+	boolean shared;			// True if residues may be read by another Sequence
 	int type;				// The type of the sequence: DNA, RNA, or Protein.
 	
 	/**
 	 * Creates a new Sequence object.
 	 */
 	public AcidSequence() {
-		this.description = "";
-		this.sequence = new StringBuilder();
+		this("");
 	}
 	
 	/**
@@ -29,8 +36,34 @@ public class AcidSequence {
 	 * @param description	A description of a sequence provided by a FASTA file
 	 */
 	public AcidSequence(String description) {
+		this(description, new byte[INITIAL_CAPACITY], 0, 0, false);
+	}
+	
+	/**
+	 * Creates a new Sequence object that takes over a buffer of acid codes,
+	 * so a reader can decode straight into the Sequence without a copy.
+	 * The buffer must not be changed by the caller afterwards.
+	 * @param description	A description of a sequence provided by a FASTA file
+	 * @param residues		a buffer holding only the acid codes
+	 */
+	public AcidSequence(String description, byte[] residues) {
+		this(description, residues, 0, residues.length, false);
+	}
+	
+	/**
+	 * Creates a new Sequence object over a range of an existing buffer.
+	 * @param description	A description of a sequence provided by a FASTA file
+	 * @param residues		a buffer of acid codes
+	 * @param start			the position of the first acid code in the buffer
+	 * @param count			the number of acid codes
+	 * @param shared		true if the buffer may be read by another Sequence
+	 */
+	AcidSequence(String description, byte[] residues, int start, int count, boolean shared) {
 		this.description = description;
-		this.sequence = new StringBuilder();
+		this.residues = residues;
+		this.start = start;
+		this.count = count;
+		this.shared = shared;
 	}
 	
 	/**
@@ -43,10 +76,75 @@ public class AcidSequence {
 	
 	/**
 	 * A series of FASTA format acid codes
+	 * NOTE: This copies the entire sequence.  Use byteAt() or getResidues()
+	 *       to read the acid codes in place.
 	 * @return	a series of acid codes
 	 */
 	public String getSequence() {
-		return this.sequence.toString();
+		return new String(this.residues, this.start, this.count, StandardCharsets.ISO_8859_1);
+	}
+	
+	/**
+	 * The acid code at a position in this Sequence, without copying the sequence.
+	 * @param index		a position in the sequence
+	 * @return			the acid code at that position
+	 */
+	public byte byteAt(int index) {
+		if (index < 0 || index >= this.count) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + this.count);
+		}
+		return this.residues[this.start + index];
+	}
+	
+	/**
+	 * Copies a range of the acid codes in this Sequence into a buffer.
+	 * @param from		the position of the first acid code to copy
+	 * @param buffer	the buffer to copy into
+	 * @param offset	the position in the buffer to copy to
+	 * @param length	the number of acid codes to copy
+	 */
+	public void copyResidues(int from, byte[] buffer, int offset, int length) {
+		if (from < 0 || length < 0 || from + length > this.count) {
+			throw new IndexOutOfBoundsException("Range: " + from + " to " + (from + length) + ", Length: " + this.count);
+		}
+		System.arraycopy(this.residues, this.start + from, buffer, offset, length);
+	}
+	
+	/**
+	 * The number of acid codes in this Sequence.
+	 * @return	the length of the sequence
+	 */
+	public int length() {
+		return this.count;
+	}
+	
+	/**
+	 * A read-only view of the acid codes in this Sequence.  The view reads
+	 * the sequence in place, so it reflects any later changes.
+	 * @return	the acid codes as a CharSequence
+	 */
+	public CharSequence getResidues() {
+		return new ResidueView(0, -1);
+	}
+	
+	/**
+	 * A Sequence holding a range of the acid codes in this Sequence.  The
+	 * two Sequences share their acid codes, without copying, until either
+	 * one of them is changed.
+	 * @param from		the position of the first acid code in the range
+	 * @param to		the position following the last acid code in the range
+	 * @return			a Sequence with the same description and type
+	 */
+	public AcidSequence subSequence(int from, int to) {
+		if (from < 0 || to > this.count || from > to) {
+			throw new IndexOutOfBoundsException("Range: " + from + " to " + to + ", Length: " + this.count);
+		}
+		// A subsequence lies within this Sequence's codes, which this Sequence
+		// never overwrites in place, so only the subsequence must copy first.
+		AcidSequence sequence = new AcidSequence(this.description, this.residues,
+												 this.start + from, to - from, true);
+		sequence.type = this.type;
+		return sequence;
 	}
 	
 	/**
@@ -81,7 +179,7 @@ public class AcidSequence {
 	 * @return	number of acid codes in the sequence
 	 */
 	public int getCount() {
-		return this.sequence.length();
+		return this.count;
 	}
 	
 	/**
@@ -90,7 +188,22 @@ public class AcidSequence {
 	 * @return		the number of occurrences of an acid code in the sequence
 	 */
 	public int getCountValue(String s) {
-		return StringUtils.countMatches(this.sequence.toString(), s);
+		if (s == null || s.isEmpty()) {
+			return 0;
+		}
+		int matches = 0;
+		// Count non-overlapping occurrences, as StringUtils.countMatches does.
+		for (int i = 0; i + s.length() <= length(); i++) {
+			int j = 0;
+			while (j < s.length() && byteAt(i + j) == (byte) s.charAt(j)) {
+				j++;
+			}
+			if (j == s.length()) {
+				matches++;
+				i += j - 1;
+			}
+		}
+		return matches;
 	}
 	
 	/**
@@ -116,7 +229,31 @@ public class AcidSequence {
 	 * @param seq	a string of acid codes
 	 */
 	public void appendSequence(String seq) {
-		this.sequence.append(seq);
+		reserve(0, seq.length());
+		for (int i = 0; i < seq.length(); i++) {
+			this.residues[this.start + this.count++] = (byte) seq.charAt(i);
+		}
+	}
+	
+	/**
+	 * Appends an acid code to the series of acid codes in this Sequence.
+	 * @param residue	an acid code
+	 */
+	public void appendResidue(byte residue) {
+		reserve(0, 1);
+		this.residues[this.start + this.count++] = residue;
+	}
+	
+	/**
+	 * Appends acid codes, given as bytes, to the series of acid codes in this Sequence.
+	 * @param residues	a buffer of acid codes
+	 * @param offset	the index of the first acid code in the buffer
+	 * @param length	the number of acid codes to append
+	 */
+	public void appendResidues(byte[] residues, int offset, int length) {
+		reserve(0, length);
+		System.arraycopy(residues, offset, this.residues, this.start + this.count, length);
+		this.count += length;
 	}
 	
 	/**
@@ -125,13 +262,91 @@ public class AcidSequence {
 	 */
 	
 	public void prependSequence(String seq) {
-		this.sequence.insert(0, seq);
+		reserve(seq.length(), 0);
+		this.start -= seq.length();
+		this.count += seq.length();
+		for (int i = 0; i < seq.length(); i++) {
+			this.residues[this.start + i] = (byte) seq.charAt(i);
+		}
+	}
+	
+	/**
+	 * Prepends an acid code to the series of acid codes in this Sequence.
+	 * @param residue	an acid code
+	 */
+	public void prependResidue(byte residue) {
+		reserve(1, 0);
+		this.start--;
+		this.count++;
+		this.residues[this.start] = residue;
+	}
+	
+	/**
+	 * Ensures there is free space in the buffer before and after the acid codes,
+	 * copying them to a new buffer if there is too little or if the buffer is shared.
+	 * The new buffer is at least twice as large as the codes, with the spare space
+	 * split between the two ends when prepending, so both ends grow in amortized
+	 * constant time.
+	 * @param front		the number of acid codes about to be prepended
+	 * @param back		the number of acid codes about to be appended
+	 */
+	private void reserve(int front, int back) {
+		if (!this.shared && this.start >= front && this.residues.length - this.start - this.count >= back) {
+			return;
+		}
+		int capacity = Math.max(Math.max(INITIAL_CAPACITY, 2 * this.count), this.count + front + back);
+		int spare = capacity - this.count - front - back;
+		int newStart = front + (front > 0 ? spare / 2 : 0);
+		byte[] grown = new byte[capacity];
+		System.arraycopy(this.residues, this.start, grown, newStart, this.count);
+		this.residues = grown;
+		this.start = newStart;
+		this.shared = false;
 	}
 	
 	/**
 	 * A text representation of this Sequence.
 	 */
 	public String toString() {
-		return "\n" + this.description + ":\n" + this.sequence.toString();
+		return "\n" + this.description + ":\n" + getSequence();
+	}
+	
+	/**
+	 * A read-only CharSequence over a range of the acid codes, read in place.
+	 */
+	private class ResidueView implements CharSequence {
+		private int from;	// The position of the first acid code in the view.
+		private int to;		// The position following the last, or -1 to follow the sequence.
+		
+		ResidueView(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+		
+		public int length() {
+			return (to < 0 ? AcidSequence.this.length() : to) - from;
+		}
+		
+		public char charAt(int index) {
+			if (index < 0 || index >= length()) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length());
+			}
+			return (char) (byteAt(from + index) & 0xff);
+		}
+		
+		public CharSequence subSequence(int first, int last) {
+			if (first < 0 || last > length() || first > last) {
+				throw new IndexOutOfBoundsException("Range: " + first + " to " + last);
+			}
+			return new ResidueView(from + first, from + last);
+		}
+		
+		public String toString() {
+			char[] codes = new char[length()];
+			for (int i = 0; i < codes.length; i++) {
+				codes[i] = charAt(i);
+			}
+			return new String(codes);
+		}
 	}
 }
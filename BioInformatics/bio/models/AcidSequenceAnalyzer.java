@@ -1,10 +1,11 @@
 package bio.models;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.List;
-
-import org.apache.commons.lang3.StringUtils;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Provides analysis methods for FASTA files.
@@ -15,6 +16,16 @@ public class AcidSequenceAnalyzer {
 	// Codes used by the FASTA file format.
 	public static final String nucleicAcidCodes = "ACGTURYKMSWBDHVNX-";
 	public static final String aminoAcidCodes = "ABCDEFGHIJKLMNOPQRSTUVWXYZ-*";
+	// The size of a residue histogram, which has one count for every byte value.
+	public static final int HISTOGRAM_SIZE = 256;
+	// Codes that only occur in amino acid sequences, in either case.
+	public static final String proteinOnlyCodes = "EFIJLOPQZ*";
+	// The number of acid codes copied out of a sequence at a time while counting.
+	private static final int COUNT_BLOCK = 1 << 16;
+	// The shortest block worth counting with the unrolled kernel.
+	private static final int UNROLL_THRESHOLD = 1 << 10;
+	// The number of acid codes counted by one fork-join task.
+	private static final int PARALLEL_UNIT = 1 << 20;
 	
 	/**
 	 * Determines the type of a sequence.
@@ -24,34 +35,49 @@ public class AcidSequenceAnalyzer {
 	 * @param sequence	a Sequence object
 	 */
 	public void determineType(AcidSequence sequence) {
-		// Ensure that the sequences provided are all upper case.
-		String seq = sequence.getSequence().toUpperCase();
+		// Count every code in a single pass, and classify the counts.
+		sequence.setType(determineType(countResidues(sequence)));
+	}
+	
+	/**
+	 * Determines the type of a sequence from its histogram.
+	 * @see #determineType(AcidSequence)
+	 * @param histogram	a histogram of a sequence, indexed by acid code
+	 * @return			DNA || RNA || PROTEIN
+	 */
+	public int determineType(long[] histogram) {
 		// The FASTA format for nucleic acid codes do not contain
-		// the following options.  Thus, if they are present,
-		// it must be a protein.
-		// TODO: use StringUtils.containsAny(s, "EFIGLOPQZ*");
-	    if ( seq.contains("E") ||
-	    	 seq.contains("F") ||
-	    	 seq.contains("I") ||
-	    	 seq.contains("J") ||
-	    	 seq.contains("L") ||
-	    	 seq.contains("O") ||
-	    	 seq.contains("P") ||
-	    	 seq.contains("Q") ||
-	    	 seq.contains("Z") ||
-	    	 seq.contains("*") ) {
-			sequence.setType(AcidSequence.PROTEIN);
+		// the following options, in either case.  Thus, if they 
+		// are present, it must be a protein.
+	    if (containsAny(histogram, proteinOnlyCodes, true)) {
+			return AcidSequence.PROTEIN;
 		} 
 	    // DNA does not contain a U code.  
-	    else if (sequence.getSequence().contains("U")) {
-			sequence.setType(AcidSequence.RNA);
+	    else if (containsAny(histogram, "U", false)) {
+			return AcidSequence.RNA;
 		} 
 	    // If it is neither of the above, it must be DNA.
 	    else {
-			sequence.setType(AcidSequence.DNA);
+			return AcidSequence.DNA;
 		}
 	}
 	
+	/**
+	 * Checks whether a histogram counts any of a set of acid codes.
+	 * @param histogram		a histogram indexed by acid code
+	 * @param codes			the acid codes to look for, in upper case
+	 * @param ignoreCase	true if lower case codes also match
+	 * @return				true if any of the codes is present
+	 */
+	private boolean containsAny(long[] histogram, String codes, boolean ignoreCase) {
+		for (int i = 0; i < codes.length(); i++) {
+			char code = codes.charAt(i);
+			if (histogram[code] > 0 || (ignoreCase && histogram[Character.toLowerCase(code)] > 0)) {
+				return true;
+			}
+		}
+		return false;
+	}
 	
 	/**
      * Determines the type for a list of sequences.
@@ -66,6 +92,111 @@ public class AcidSequenceAnalyzer {
 		}
 	}
 	
+	/**
+	 * Counts every acid code in a sequence in a single pass.
+	 * @param sequence	a Sequence object
+	 * @return			a histogram of the sequence, indexed by acid code
+	 */
+	public long[] countResidues(AcidSequence sequence) {
+		long[] histogram = new long[HISTOGRAM_SIZE];
+		countResidues(sequence, histogram);
+		return histogram;
+	}
+	
+	/**
+	 * Counts every acid code in a sequence in a single pass, adding the
+	 * counts to an existing histogram.
+	 * @require			histogram.length == HISTOGRAM_SIZE
+	 * @param sequence	a Sequence object
+	 * @param histogram	a histogram indexed by acid code
+	 */
+	public void countResidues(AcidSequence sequence, long[] histogram) {
+		countResidues(sequence, 0, sequence.length(), histogram);
+	}
+	
+	/**
+	 * Counts every acid code in a range of a sequence, adding the counts
+	 * to an existing histogram.
+	 * @require			histogram.length == HISTOGRAM_SIZE
+	 * @param sequence	a Sequence object
+	 * @param start		the position of the first acid code to count
+	 * @param end		the position following the last acid code to count
+	 * @param histogram	a histogram indexed by acid code
+	 */
+	public void countResidues(AcidSequence sequence, int start, int end, long[] histogram) {
+		byte[] block = new byte[Math.min(COUNT_BLOCK, end - start)];
+		int[][] counts = null;
+		// Copy the sequence out a block at a time...
+		for (int from = start; from < end; from += block.length) {
+			int length = Math.min(block.length, end - from);
+			sequence.copyResidues(from, block, 0, length);
+			// and count every code in the block.
+			if (length < UNROLL_THRESHOLD) {
+				for (int i = 0; i < length; i++) {
+					histogram[block[i] & 0xff]++;
+				}
+			} else {
+				if (counts == null) {
+					counts = new int[4][HISTOGRAM_SIZE];
+				}
+				countBlock(block, length, counts, histogram);
+			}
+		}
+	}
+	
+	/**
+	 * Counts the acid codes in a block, four at a time, into four separate tables.
+	 * Runs of the same code then increment different tables, so consecutive
+	 * increments do not wait on each other, which is what limits a single-table
+	 * count on long homopolymer and low-complexity stretches.  The tables are
+	 * added to the histogram, and cleared, at the end of the block.
+	 * @require				length <= COUNT_BLOCK, so no table count can overflow
+	 * @param block			a block of acid codes
+	 * @param length		the number of acid codes in the block
+	 * @param counts		four cleared tables of HISTOGRAM_SIZE counts
+	 * @param histogram		the histogram to add the counts to
+	 */
+	private void countBlock(byte[] block, int length, int[][] counts, long[] histogram) {
+		int[] c0 = counts[0];
+		int[] c1 = counts[1];
+		int[] c2 = counts[2];
+		int[] c3 = counts[3];
+		int i = 0;
+		for (; i + 3 < length; i += 4) {
+			c0[block[i] & 0xff]++;
+			c1[block[i + 1] & 0xff]++;
+			c2[block[i + 2] & 0xff]++;
+			c3[block[i + 3] & 0xff]++;
+		}
+		for (; i < length; i++) {
+			c0[block[i] & 0xff]++;
+		}
+		for (int code = 0; code < HISTOGRAM_SIZE; code++) {
+			histogram[code] += c0[code] + c1[code] + c2[code] + c3[code];
+			c0[code] = 0;
+			c1[code] = 0;
+			c2[code] = 0;
+			c3[code] = 0;
+		}
+	}
+	
+	/**
+	 * Copies the counts of a set of acid codes from a histogram into a hashtable.
+	 * @param histogram		a histogram indexed by acid code
+	 * @param codes			the acid codes to copy
+	 * @param table			the hashtable to add the counts to
+	 * @param skipZeros		true if codes that do not occur should be left out
+	 * @throws ArithmeticException	if a count is too large for an Integer
+	 */
+	private void tabulate(long[] histogram, String codes, Hashtable<String, Integer> table, boolean skipZeros) {
+		for (int i = 0; i < codes.length(); i++) {
+			int count = Math.toIntExact(histogram[codes.charAt(i)]);
+			if (count != 0 || !skipZeros) {
+				table.put(codes.charAt(i) + "", count);
+			}
+		}
+	}
+	
 	/**
 	 * Counts the number of each nucleic acid code in a sequence.  
 	 * @param sequence	a Sequence object
@@ -77,13 +208,9 @@ public class AcidSequenceAnalyzer {
 		// If the sequence is either DNA or RNA...
 		if ( sequence.getType() == AcidSequence.DNA ||
 			 sequence.getType() == AcidSequence.RNA    ) {	
-			// For every possible nucleic acid code in the FASTA format...
-			for (int i = 0; i < nucleicAcidCodes.length(); i++) {
-				// count the number of occurrences of that code...
-				int count = StringUtils.countMatches(sequence.getSequence(), nucleicAcidCodes.charAt(i) + "");
-				// and store the total in a hashtable.
-				table.put(nucleicAcidCodes.charAt(i) + "", count);
-			}
+			// Count every code in one pass, and store the total 
+			// for every possible nucleic acid code in a hashtable.
+			tabulate(countResidues(sequence), nucleicAcidCodes, table, false);
 		} else {
 			System.out.println("Received invalid sequence for Nucleic Acid count.");
 		}
@@ -100,13 +227,9 @@ public class AcidSequenceAnalyzer {
 		Hashtable<String, Integer> table = new Hashtable<String, Integer>();
 		// If the sequence is a protein
 		if ( sequence.getType() == AcidSequence.PROTEIN ) {
-			// For every possible amino acid code in the FASTA format...
-			for (int i = 0; i < aminoAcidCodes.length(); i++) {
-				// count the number of occurrences of that code...
-				int count = StringUtils.countMatches(sequence.getSequence(),  aminoAcidCodes.charAt(i) + "");
-				// and store the total in a hashtable.
-				table.put(aminoAcidCodes.charAt(i) + "", count);
-			}
+			// Count every code in one pass, and store the total 
+			// for every possible amino acid code in a hashtable.
+			tabulate(countResidues(sequence), aminoAcidCodes, table, false);
 		} else {
 			System.out.println("Received invalid sequence for Amino Acid count.");
 		}
@@ -125,44 +248,28 @@ public class AcidSequenceAnalyzer {
 		Hashtable<String, Integer> aminoAcidTable = new Hashtable<String, Integer>();
 		Hashtable<String, Integer> nucleicAcidTable = new Hashtable<String, Integer>();
 		
+		long[] nucleicAcidHistogram = new long[HISTOGRAM_SIZE];
+		long[] aminoAcidHistogram = new long[HISTOGRAM_SIZE];
+		
 		// For every sequence in the list...
 		for (AcidSequence sequence : list) {
 			// if it contains nucleic acids...
 			if ( sequence.getType() == AcidSequence.DNA ||
 				 sequence.getType() == AcidSequence.RNA    ) {	
-				// determine the total for the sequence...
-				Hashtable<String, Integer> tempTable = determineNucleicAcidCount(sequence);
-				// and then add the totals to its aggregating hashtable.
-				for (String key: tempTable.keySet()) {
-					int additionalAmount = tempTable.get(key);
-					int currentTotal = 0;
-					if (additionalAmount != 0) {
-						if (nucleicAcidTable.containsKey(key)) {
-							currentTotal = nucleicAcidTable.get(key);
-						}
-						nucleicAcidTable.put(key,  currentTotal + additionalAmount);
-					}
-				}
+				// add its codes to the nucleic acid histogram.
+				countResidues(sequence, nucleicAcidHistogram);
 			} 
 			// if it contains amino acids...
 			else if ( sequence.getType() == AcidSequence.PROTEIN ) {
-				// determine the total for the sequence...
-				Hashtable<String, Integer> tempTable = determineAminoAcidCount(sequence);
-				// and then add the totals to its aggregating hashtable.
-				for (String key: tempTable.keySet()) {
-					int additionalAmount = tempTable.get(key);
-					int currentTotal = 0;
-					if (additionalAmount != 0) {
-						if (aminoAcidTable.containsKey(key)) {
-							currentTotal = aminoAcidTable.get(key);
-						}
-						aminoAcidTable.put(key,  currentTotal + additionalAmount);
-					}
-				}
+				// add its codes to the amino acid histogram.
+				countResidues(sequence, aminoAcidHistogram);
 			} else {
 				System.out.println("Received sequence of undetermined type.");
 			}
 		}
+		// Store the totals of the codes that occur in their hashtables.
+		tabulate(nucleicAcidHistogram, nucleicAcidCodes, nucleicAcidTable, true);
+		tabulate(aminoAcidHistogram, aminoAcidCodes, aminoAcidTable, true);
 		
 		// Put the two hashtables in a list and return the data structure.
 		tables.add(nucleicAcidTable);
@@ -170,6 +277,176 @@ public class AcidSequenceAnalyzer {
 		return tables;
 	}
 	
+	/**
+	 * Determines the type of a sequence and counts its acid codes in a single pass.
+	 * The sequence is counted into a histogram of every byte value, which both
+	 * decides the type, as determineType does, and is then added to the
+	 * histogram for that type.
+	 * @param sequence	a Sequence object, whose type is set
+	 * @param counts	the nucleic acid [0] and amino acid [1] histograms to add to
+	 * @return			DNA || RNA || PROTEIN
+	 */
+	public int classifyAndCount(AcidSequence sequence, long[][] counts) {
+		return classify(sequence, countResidues(sequence), counts, true);
+	}
+	
+	/**
+	 * Adds the histogram of a counted sequence to the histogram for its type,
+	 * first setting the type from the histogram if asked to.
+	 * @param sequence	a Sequence object
+	 * @param histogram	the histogram of the whole sequence
+	 * @param counts	the nucleic acid [0] and amino acid [1] histograms to add to
+	 * @param setType	true to determine the type, as determineType does, or
+	 *                  false to keep the type the sequence already has
+	 * @return			DNA || RNA || PROTEIN, or the undetermined type
+	 */
+	private int classify(AcidSequence sequence, long[] histogram, long[][] counts, boolean setType) {
+		int type;
+		if (setType) {
+			type = determineType(histogram);
+			sequence.setType(type);
+		} else {
+			type = sequence.getType();
+			if (type != AcidSequence.DNA && type != AcidSequence.RNA && type != AcidSequence.PROTEIN) {
+				System.out.println("Received sequence of undetermined type.");
+				return type;
+			}
+		}
+		// Nucleic Acid Histogram = 0, Amino Acid Histogram = 1;
+		long[] target = counts[type == AcidSequence.PROTEIN ? 1 : 0];
+		for (int code = 0; code < HISTOGRAM_SIZE; code++) {
+			target[code] += histogram[code];
+		}
+		return type;
+	}
+	
+	/**
+	 * Determines the types of a list of sequences and the total number of acids
+	 * in them, reading every sequence once.  The result is identical to calling
+	 * determineTypes and then determineTotals.
+	 * @param list	a list of Sequence objects, whose types are set
+	 * @return 		a set of hashtables containing the totals for each
+	 *              amino acid and nucleic acid code.  
+	 */
+	public List<Hashtable<String, Integer>> determineTypesAndTotals(List<AcidSequence> list) {
+		long[][] counts = new long[2][HISTOGRAM_SIZE];
+		for (AcidSequence sequence : list) {
+			classifyAndCount(sequence, counts);
+		}
+		return tabulateTotals(counts);
+	}
+	
+	/**
+	 * Determines the types of a list of sequences and the total number of acids
+	 * in them on every core, reading every sequence once.
+	 * @see #determineTypesAndTotals(List)
+	 * @param list	a list of Sequence objects, whose types are set
+	 * @return 		a set of hashtables containing the totals for each
+	 *              amino acid and nucleic acid code.  
+	 */
+	public List<Hashtable<String, Integer>> determineTypesAndTotalsInParallel(List<AcidSequence> list) {
+		return tabulateTotals(classifyAndCountInParallel(list));
+	}
+	
+	/**
+	 * Determines the total number of acids in a list of sequences on every core,
+	 * using the common fork-join pool.  The result is identical to determineTotals.
+	 * @see #determineTotals(List)
+	 * @param list	a list of Sequence objects, whose types are determined
+	 * @return 		a set of hashtables containing the totals for each
+	 *              amino acid and nucleic acid code.  
+	 */
+	public List<Hashtable<String, Integer>> determineTotalsInParallel(List<AcidSequence> list) {
+		return tabulateTotals(countInParallel(list, false));
+	}
+	
+	/**
+	 * Determines the types of a list of sequences and counts their acid codes
+	 * on every core, reading every sequence once.  Each fork-join task classifies
+	 * and counts the sequences that lie wholly inside its unit of work.  A sequence
+	 * divided between units is counted piece by piece and classified once every
+	 * piece has been counted.
+	 * @param list	a list of Sequence objects, whose types are set
+	 * @return		the nucleic acid [0] and amino acid [1] histograms
+	 */
+	public long[][] classifyAndCountInParallel(List<AcidSequence> list) {
+		return countInParallel(list, true);
+	}
+	
+	/**
+	 * Counts the acid codes of a list of sequences into the histograms for their
+	 * types on every core, reading every sequence once.  Each fork-join task counts
+	 * the sequences that lie wholly inside its unit of work into its own histograms,
+	 * which are summed as the tasks are joined.  A sequence divided between units
+	 * is counted piece by piece and added once every piece has been counted.
+	 * @param list		a list of Sequence objects
+	 * @param setType	true to determine the type of every sequence, or false
+	 *                  to keep the types the sequences already have
+	 * @return			the nucleic acid [0] and amino acid [1] histograms
+	 */
+	private long[][] countInParallel(List<AcidSequence> list, boolean setType) {
+		ResidueRanges ranges = new ResidueRanges();
+		for (AcidSequence sequence : list) {
+			ranges.add(sequence);
+		}
+		if (ranges.units == 0) {
+			return new long[2][HISTOGRAM_SIZE];
+		}
+		long[][] pieces = new long[ranges.count][];
+		long[][] counts = ForkJoinPool.commonPool().invoke(
+				new ClassifyTask(this, ranges, 0, ranges.units, pieces, setType));
+		// Classify the sequences that were divided, from the sum of their pieces.
+		for (int first = 0; first < ranges.count; ) {
+			int last = first + 1;
+			while (last < ranges.count && ranges.sequenceIndexes[last] == ranges.sequenceIndexes[first]) {
+				last++;
+			}
+			if (pieces[first] != null) {
+				long[] histogram = new long[HISTOGRAM_SIZE];
+				for (int piece = first; piece < last; piece++) {
+					for (int code = 0; code < HISTOGRAM_SIZE; code++) {
+						histogram[code] += pieces[piece][code];
+					}
+				}
+				classify(ranges.sequences[first], histogram, counts, setType);
+			}
+			first = last;
+		}
+		return counts;
+	}
+	
+	/**
+	 * Adds one pair of nucleic and amino acid histograms to another.
+	 * @param aggregate		a running total of the histograms
+	 * @param counts		the histograms for more sequences
+	 * @return				the running total
+	 */
+	public long[][] mergeTotals(long[][] aggregate, long[][] counts) {
+		for (int table = 0; table < 2; table++) {
+			for (int code = 0; code < HISTOGRAM_SIZE; code++) {
+				aggregate[table][code] += counts[table][code];
+			}
+		}
+		return aggregate;
+	}
+	
+	/**
+	 * Converts a pair of nucleic and amino acid histograms into the hashtables
+	 * returned by determineTotals, holding only the codes that occur.
+	 * @param counts	the nucleic acid [0] and amino acid [1] histograms
+	 * @return			a set of hashtables containing the totals for each
+	 *              	amino acid and nucleic acid code.  
+	 * @throws ArithmeticException	if a count is too large for an Integer
+	 */
+	public List<Hashtable<String, Integer>> tabulateTotals(long[][] counts) {
+		List<Hashtable<String, Integer>> tables = new ArrayList<Hashtable<String,Integer>>();
+		tables.add(new Hashtable<String, Integer>());
+		tables.add(new Hashtable<String, Integer>());
+		tabulate(counts[0], nucleicAcidCodes, tables.get(0), true);
+		tabulate(counts[1], aminoAcidCodes, tables.get(1), true);
+		return tables;
+	}
+	
 	/**
 	 * Combines two lists, each containing a hashtable for nucleic acids and a hashtable
 	 * for amino acids.  
@@ -235,4 +512,112 @@ public class AcidSequenceAnalyzer {
 		return frequencies;
 	}
 	
+	
+	/**
+	 * The pieces of a list of sequences, no piece longer than PARALLEL_UNIT,
+	 * grouped into units of work of roughly PARALLEL_UNIT acid codes each.
+	 */
+	private static class ResidueRanges {
+		private AcidSequence[] sequences = new AcidSequence[16];	// The sequence of each piece.
+		private int[] sequenceIndexes = new int[16];	// The index in the list of each piece's sequence.
+		private int[] froms = new int[16];				// The first position of each piece.
+		private int[] tos = new int[16];				// The position following each piece.
+		private int[] unitStarts = new int[16];			// The first piece of each unit.
+		private int count = 0;							// The number of pieces.
+		private int units = 0;							// The number of units.
+		private int sequenceCount = 0;					// The number of sequences.
+		private long unitSize = PARALLEL_UNIT;			// The number of acid codes in the last unit.
+		
+		/**
+		 * Divides a sequence into pieces and adds them to the units.
+		 * @param sequence	a Sequence object
+		 */
+		void add(AcidSequence sequence) {
+			int length = sequence.length();
+			int from = 0;
+			do {
+				int to = (int) Math.min(length, (long) from + PARALLEL_UNIT);
+				// Begin a new unit once the last one is full.
+				if (unitSize >= PARALLEL_UNIT) {
+					if (units == unitStarts.length) {
+						unitStarts = Arrays.copyOf(unitStarts, units * 2);
+					}
+					unitStarts[units++] = count;
+					unitSize = 0;
+				}
+				if (count == froms.length) {
+					sequences = Arrays.copyOf(sequences, count * 2);
+					sequenceIndexes = Arrays.copyOf(sequenceIndexes, count * 2);
+					froms = Arrays.copyOf(froms, count * 2);
+					tos = Arrays.copyOf(tos, count * 2);
+				}
+				sequences[count] = sequence;
+				sequenceIndexes[count] = sequenceCount;
+				froms[count] = from;
+				tos[count] = to;
+				count++;
+				unitSize += to - from;
+				from = to;
+			} while (from < length);
+			sequenceCount++;
+		}
+		
+		/**
+		 * The position following the last piece of a unit.
+		 * @param unit		the index of a unit
+		 * @return			the index of the unit's last piece, plus one
+		 */
+		int unitEnd(int unit) {
+			return unit + 1 < units ? unitStarts[unit + 1] : count;
+		}
+	}
+	
+	/**
+	 * Classifies and counts the whole sequences of a range of units into a new pair
+	 * of histograms, and counts each piece of a divided sequence on its own.
+	 */
+	private static class ClassifyTask extends RecursiveTask<long[][]> {
+		private static final long serialVersionUID = 1L;
+		private AcidSequenceAnalyzer analyzer;
+		private ResidueRanges ranges;
+		private int first;
+		private int last;
+		private long[][] pieces;
+		private boolean setType;
+		
+		ClassifyTask(AcidSequenceAnalyzer analyzer, ResidueRanges ranges, int first, int last, 
+					 long[][] pieces, boolean setType) {
+			this.analyzer = analyzer;
+			this.ranges = ranges;
+			this.first = first;
+			this.last = last;
+			this.pieces = pieces;
+			this.setType = setType;
+		}
+		
+		protected long[][] compute() {
+			// Divide the units in half, classifying the halves in parallel...
+			if (last - first > 1) {
+				int middle = (first + last) >>> 1;
+				ClassifyTask left = new ClassifyTask(analyzer, ranges, first, middle, pieces, setType);
+				left.fork();
+				long[][] counts = new ClassifyTask(analyzer, ranges, middle, last, pieces, setType).compute();
+				// and summing their histograms as they are joined.
+				return analyzer.mergeTotals(counts, left.join());
+			}
+			// A single unit is counted into its own histograms.
+			long[][] counts = new long[2][HISTOGRAM_SIZE];
+			for (int piece = ranges.unitStarts[first]; piece < ranges.unitEnd(first); piece++) {
+				AcidSequence sequence = ranges.sequences[piece];
+				long[] histogram = new long[HISTOGRAM_SIZE];
+				analyzer.countResidues(sequence, ranges.froms[piece], ranges.tos[piece], histogram);
+				if (ranges.froms[piece] == 0 && ranges.tos[piece] == sequence.length()) {
+					analyzer.classify(sequence, histogram, counts, setType);
+				} else {
+					pieces[piece] = histogram;
+				}
+			}
+			return counts;
+		}
+	}
 }
@@ -0,0 +1,100 @@
+package bio.models;
+
+/**
+ * Counts the k-mers in nucleic acid sequences approximately, in a fixed amount
+ * of memory however many distinct k-mers there are.  A CountMinSketch gives the
+ * frequency of any k-mer, never underestimated, and a HyperLogLog gives the
+ * number of distinct k-mers.  Counters filled on separate threads or from
+ * separate files can be merged, provided they were created alike.
+ * @see KmerCounter
+ * @author Brian J. Walters
+ */
+public class ApproximateKmerCounter extends AbstractKmerCounter {
+	// The default dimensions: 4 rows of 2^17 counters (4 MB) and 2^14 registers (16 KB).
+	public static final int DEFAULT_WIDTH = 1 << 17;
+	public static final int DEFAULT_DEPTH = 4;
+	public static final int DEFAULT_PRECISION = 14;
+
+	private CountMinSketch sketch;		// The approximate count of each k-mer.
+	private HyperLogLog distinct;		// The approximate number of distinct k-mers.
+
+	/**
+	 * Creates a new ApproximateKmerCounter of the default size.
+	 * @param k				the length of the k-mers, from 1 to MAX_K
+	 * @param canonical		true to count each k-mer with its reverse complement
+	 */
+	public ApproximateKmerCounter(int k, boolean canonical) {
+		this(k, canonical, DEFAULT_WIDTH, DEFAULT_DEPTH, DEFAULT_PRECISION);
+	}
+
+	/**
+	 * Creates a new ApproximateKmerCounter.
+	 * @param k				the length of the k-mers, from 1 to MAX_K
+	 * @param canonical		true to count each k-mer with its reverse complement
+	 * @param width			the number of counters in each row of the sketch
+	 * @param depth			the number of rows in the sketch
+	 * @param precision		the log2 of the number of HyperLogLog registers
+	 */
+	public ApproximateKmerCounter(int k, boolean canonical, int width, int depth, int precision) {
+		super(k, canonical);
+		this.sketch = new CountMinSketch(width, depth);
+		this.distinct = new HyperLogLog(precision);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void count(long kmer) {
+		sketch.increment(kmer);
+		distinct.add(kmer);
+	}
+
+	/**
+	 * Adds the counts of another counter to this one.
+	 * @param other		a counter with the same k, mode and dimensions
+	 * @return			this counter
+	 */
+	public ApproximateKmerCounter merge(ApproximateKmerCounter other) {
+		checkMergeable(other);
+		sketch.merge(other.sketch);
+		distinct.merge(other.distinct);
+		total += other.total;
+		return this;
+	}
+
+	/**
+	 * The approximate count of a k-mer.  In canonical mode, this is the
+	 * count of the k-mer and its reverse complement together.
+	 * @param kmer		k nucleotides
+	 * @return			at least the number of times it was counted
+	 */
+	public long getCount(String kmer) {
+		long key = encode(kmer);
+		return key < 0 ? 0 : sketch.estimate(key);
+	}
+
+	/**
+	 * The approximate number of distinct k-mers counted.
+	 * @return	the estimate
+	 */
+	public long getDistinctCount() {
+		return distinct.cardinality();
+	}
+
+	/**
+	 * The sketch of the k-mer counts, keyed by encoded k-mer.
+	 * @see #decode(long)
+	 * @return	the sketch
+	 */
+	public CountMinSketch getSketch() {
+		return sketch;
+	}
+
+	/**
+	 * The estimator of the number of distinct k-mers.
+	 * @return	the estimator
+	 */
+	public HyperLogLog getDistinctEstimator() {
+		return distinct;
+	}
+}
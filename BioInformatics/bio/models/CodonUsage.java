@@ -0,0 +1,167 @@
+package bio.models;
+
+import java.util.List;
+
+/**
+ * Counts the codons of nucleic acid sequences in all six reading frames without
+ * translating them: frames 0 to 2 read the sequence from its first, second and
+ * third nucleotide, and frames 3 to 5 read its reverse complement likewise.
+ * Every frame is counted in a single pass over the sequence, rolling each codon
+ * and its reverse complement along as 6-bit indexes.  A codon holding any code
+ * other than A, C, G, T or U (such as N) is skipped.  Counts filled on separate
+ * threads can be merged.
+ * @see GeneticCode
+ * @author Brian J. Walters
+ */
+public class CodonUsage {
+	public static final int FRAMES = 6;
+
+	private static final int BLOCK_SIZE = 1 << 16;	// Acid codes copied out of a Sequence at a time.
+
+	private long[] counts;	// The count of each codon [frame * 64 + codon].
+
+	/**
+	 * Creates an empty table of codon counts.
+	 */
+	public CodonUsage() {
+		this.counts = new long[FRAMES * GeneticCode.CODONS];
+	}
+
+	/**
+	 * Counts the codons of a sequence in all six frames.
+	 * @param sequence		a Sequence of nucleotides
+	 */
+	public void add(AcidSequence sequence) {
+		int length = sequence.length();
+		int forward = 0;	// The codon ending at the current position.
+		int reverse = 0;	// Its reverse complement.
+		int valid = 0;		// The number of nucleotides since the last other code.
+		// The frames of the codons ending at the first position, as though it were the third.
+		int forwardFrame = 1;
+		int reverseFrame = (length - 1) % 3;
+		byte[] block = new byte[Math.min(BLOCK_SIZE, length)];
+		// Copy the sequence out a block at a time...
+		for (int from = 0; from < length; from += block.length) {
+			int count = Math.min(block.length, length - from);
+			sequence.copyResidues(from, block, 0, count);
+			// and roll every nucleotide into the codons.
+			for (int i = 0; i < count; i++) {
+				int code = GeneticCode.encode(block[i]);
+				if (code < 0) {
+					valid = 0;
+				} else {
+					forward = ((forward << 2) | code) & 63;
+					reverse = (reverse >>> 2) | ((3 - code) << 4);
+					if (++valid >= 3) {
+						counts[forwardFrame * GeneticCode.CODONS + forward]++;
+						counts[(3 + reverseFrame) * GeneticCode.CODONS + reverse]++;
+					}
+				}
+				forwardFrame = forwardFrame == 2 ? 0 : forwardFrame + 1;
+				reverseFrame = reverseFrame == 0 ? 2 : reverseFrame - 1;
+			}
+		}
+	}
+
+	/**
+	 * Counts the codons of a list of sequences.  Sequences that are
+	 * not nucleic acids are skipped once their types are determined.
+	 * @param list		a list of Sequence objects
+	 */
+	public void add(List<AcidSequence> list) {
+		for (AcidSequence sequence : list) {
+			if (sequence.getType() != AcidSequence.PROTEIN) {
+				add(sequence);
+			}
+		}
+	}
+
+	/**
+	 * Translates one reading frame of a sequence.  A codon holding any code
+	 * other than A, C, G, T or U translates to GeneticCode.UNKNOWN.
+	 * @param sequence		a Sequence of nucleotides
+	 * @param frame			the reading frame, from 0 to 5
+	 * @return				a Protein Sequence of the frame's amino acids and stops
+	 */
+	public static AcidSequence translate(AcidSequence sequence, int frame) {
+		if (frame < 0 || frame >= FRAMES) {
+			throw new IllegalArgumentException("Frame must be from 0 to " + (FRAMES - 1) + ": " + frame);
+		}
+		int length = sequence.length();
+		int offset = frame % 3;
+		byte[] protein = new byte[Math.max(0, (length - offset) / 3)];
+		byte[] codon = new byte[3];
+		for (int i = 0; i < protein.length; i++) {
+			int index = 0;
+			boolean valid = true;
+			if (frame < 3) {
+				sequence.copyResidues(offset + 3 * i, codon, 0, 3);
+				for (int j = 0; j < 3; j++) {
+					int code = GeneticCode.encode(codon[j]);
+					valid &= code >= 0;
+					index = (index << 2) | (code & 3);
+				}
+			} else {
+				// Read the codon backwards from the 3' end, complementing each nucleotide.
+				sequence.copyResidues(length - offset - 3 * i - 3, codon, 0, 3);
+				for (int j = 2; j >= 0; j--) {
+					int code = GeneticCode.encode(codon[j]);
+					valid &= code >= 0;
+					index = (index << 2) | (3 - (code & 3));
+				}
+			}
+			protein[i] = valid ? GeneticCode.translate(index) : (byte) GeneticCode.UNKNOWN;
+		}
+		AcidSequence result = new AcidSequence(sequence.getDescription() + " frame " + (frame < 3 ? "+" : "-") + (offset + 1));
+		result.appendResidues(protein, 0, protein.length);
+		result.setType(AcidSequence.PROTEIN);
+		return result;
+	}
+
+	/**
+	 * Adds the counts of another table to this one.
+	 * @param other		a table of codon counts
+	 * @return			this table
+	 */
+	public CodonUsage merge(CodonUsage other) {
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		return this;
+	}
+
+	/**
+	 * The count of a codon in one reading frame.
+	 * @param frame		the reading frame, from 0 to 5
+	 * @param codon		a 6-bit codon index
+	 * @return			the number of times it was counted
+	 */
+	public long getCount(int frame, int codon) {
+		return counts[frame * GeneticCode.CODONS + codon];
+	}
+
+	/**
+	 * The count of a codon in all six reading frames.
+	 * @param codon		a 6-bit codon index
+	 * @return			the number of times it was counted
+	 */
+	public long getCount(int codon) {
+		long total = 0;
+		for (int frame = 0; frame < FRAMES; frame++) {
+			total += counts[frame * GeneticCode.CODONS + codon];
+		}
+		return total;
+	}
+
+	/**
+	 * The number of codons counted in all six reading frames.
+	 * @return	the total of every count
+	 */
+	public long getTotalCount() {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,168 @@
+package bio.models;
+
+/**
+ * A count-min sketch: approximate counts of any number of distinct keys in a
+ * fixed amount of memory.  Each key is counted in one counter of each of depth
+ * rows of width counters, chosen by a hash for each row, and its estimate is
+ * the smallest of those counters.  Keys that share a counter can only add to
+ * it, so an estimate is never below the true count, and it exceeds the true
+ * count by at most ERROR (e / width) times the total of every count with
+ * probability CONFIDENCE (1 - e^-depth).  Sketches of the same dimensions can
+ * be merged, so parts of a sample can be counted separately.
+ * @author Brian J. Walters
+ */
+public class CountMinSketch {
+	private int width;			// The number of counters in each row, a power of two.
+	private int depth;			// The number of rows.
+	private long[] counters;	// The rows of counters, one after another.
+	private long total;			// The total of every count.
+
+	/**
+	 * Creates an empty sketch.
+	 * @param width		the number of counters in each row, rounded up to a power of two
+	 * @param depth		the number of rows
+	 */
+	public CountMinSketch(int width, int depth) {
+		if (width < 1 || width > 1 << 30 || depth < 1 || (long) width * depth > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid sketch dimensions: " + width + " x " + depth);
+		}
+		this.width = Integer.highestOneBit(width) == width ? width : Integer.highestOneBit(width) << 1;
+		this.depth = depth;
+		this.counters = new long[this.width * depth];
+		this.total = 0;
+	}
+
+	/**
+	 * Creates an empty sketch that is as small as possible
+	 * for an error bound.
+	 * @param error			the largest overestimate, as a fraction of the total count
+	 * @param confidence	the probability that an estimate is within the bound
+	 * @return				a new sketch
+	 */
+	public static CountMinSketch forError(double error, double confidence) {
+		if (error <= 0 || confidence <= 0 || confidence >= 1) {
+			throw new IllegalArgumentException("Invalid error bound: " + error + " with confidence " + confidence);
+		}
+		int width = (int) Math.min(1 << 30, Math.ceil(Math.E / error));
+		int depth = (int) Math.ceil(Math.log(1 / (1 - confidence)));
+		return new CountMinSketch(width, depth);
+	}
+
+	/**
+	 * Adds to the count of a key.
+	 * @param key		a key
+	 * @param amount	the amount to add
+	 */
+	public void add(long key, long amount) {
+		long hash = hash(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		for (int row = 0; row < depth; row++) {
+			counters[row * width + ((h1 + row * h2) & (width - 1))] += amount;
+		}
+		total += amount;
+	}
+
+	/**
+	 * Adds one to the count of a key.
+	 * @param key		a key
+	 */
+	public void increment(long key) {
+		add(key, 1);
+	}
+
+	/**
+	 * The approximate count of a key.
+	 * @param key		a key
+	 * @return			at least the number of times it was counted
+	 */
+	public long estimate(long key) {
+		long hash = hash(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			estimate = Math.min(estimate, counters[row * width + ((h1 + row * h2) & (width - 1))]);
+		}
+		return estimate;
+	}
+
+	/**
+	 * Adds the counts of another sketch to this one.
+	 * @param other		a sketch of the same dimensions
+	 * @return			this sketch
+	 */
+	public CountMinSketch merge(CountMinSketch other) {
+		if (other.width != width || other.depth != depth) {
+			throw new IllegalArgumentException("Cannot merge sketches of different dimensions.");
+		}
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] += other.counters[i];
+		}
+		total += other.total;
+		return this;
+	}
+
+	/**
+	 * The largest overestimate of a count, as a fraction of the total count.
+	 * @return	e / width
+	 */
+	public double getError() {
+		return Math.E / width;
+	}
+
+	/**
+	 * The largest overestimate of a count.
+	 * @return	the error times the total count
+	 */
+	public double getErrorBound() {
+		return getError() * total;
+	}
+
+	/**
+	 * The probability that an estimate is within the error bound.
+	 * @return	1 - e^-depth
+	 */
+	public double getConfidence() {
+		return 1 - Math.exp(-depth);
+	}
+
+	/**
+	 * The number of counters in each row.
+	 * @return	the width
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * The number of rows.
+	 * @return	the depth
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * The total of every count.
+	 * @return	the number of times any key was counted
+	 */
+	public long getTotalCount() {
+		return total;
+	}
+
+	/**
+	 * Mixes the bits of a key.  The two halves of the hash choose the
+	 * counter in every row, as h1 + row * h2.
+	 * @param key		a key
+	 * @return			a well-distributed hash
+	 */
+	private static long hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return key;
+	}
+}
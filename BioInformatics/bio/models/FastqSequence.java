@@ -0,0 +1,69 @@
+package bio.models;
+
+import java.util.Arrays;
+
+/**
+ * A Sequence read from a FASTQ file, holding a quality score for each acid code.
+ * @author Brian J. Walters
+ */
+public class FastqSequence extends AcidSequence {
+	// The offset of Phred scores in the FASTQ quality characters (Sanger / Illumina 1.8+).
+	public static final int PHRED_OFFSET = 33;
+	
+	private byte[] qualities;	// Phred quality scores.
+	private int qualityCount;	// The number of quality scores.
+	
+	/**
+	 * Creates a new FastqSequence object.
+	 * @param description	A description of a sequence provided by a FASTQ file
+	 */
+	public FastqSequence(String description) {
+		super(description);
+		this.qualities = new byte[16];
+		this.qualityCount = 0;
+	}
+	
+	/**
+	 * The number of quality scores in this Sequence.
+	 * @return	the number of quality scores
+	 */
+	public int getQualityCount() {
+		return this.qualityCount;
+	}
+	
+	/**
+	 * The Phred quality score of an acid code in this Sequence.
+	 * @require			0 <= index < getQualityCount()
+	 * @param index		the index of an acid code
+	 * @return			its quality score
+	 */
+	public int getQuality(int index) {
+		return this.qualities[index];
+	}
+	
+	/**
+	 * The Phred quality scores of this Sequence.
+	 * @return	a copy of the quality scores
+	 */
+	public byte[] getQualities() {
+		return Arrays.copyOf(this.qualities, this.qualityCount);
+	}
+	
+	/**
+	 * Appends quality characters, as found in a FASTQ file, to the quality
+	 * scores of this Sequence.
+	 * @param characters	a buffer of quality characters
+	 * @param offset		the index of the first quality character in the buffer
+	 * @param length		the number of quality characters to append
+	 */
+	public void appendQualities(byte[] characters, int offset, int length) {
+		if (this.qualityCount + length > this.qualities.length) {
+			this.qualities = Arrays.copyOf(this.qualities, 
+					Math.max(this.qualities.length * 2, this.qualityCount + length));
+		}
+		for (int i = 0; i < length; i++) {
+			this.qualities[this.qualityCount + i] = (byte) (characters[offset + i] - PHRED_OFFSET);
+		}
+		this.qualityCount += length;
+	}
+}
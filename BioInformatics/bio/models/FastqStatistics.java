@@ -0,0 +1,189 @@
+package bio.models;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Accumulates quality and composition statistics over the reads of a FASTQ
+ * file, one read at a time, so that a file never has to be held in memory.
+ * Statistics gathered separately (for example, on different threads or for
+ * different parts of a file) can be merged.
+ * @author Brian J. Walters
+ */
+public class FastqStatistics {
+	// The acid codes counted at each position; any other code is counted as N.
+	public static final String BASES = "ACGTN";
+	// The highest Phred score recorded in the quality histogram.
+	public static final int MAX_QUALITY = 93;
+	
+	private static final byte[] BASE_INDEX = new byte[256];	// Acid code to index in BASES.
+	static {
+		Arrays.fill(BASE_INDEX, (byte) 4);
+		for (int i = 0; i < BASES.length(); i++) {
+			BASE_INDEX[BASES.charAt(i)] = (byte) i;
+			BASE_INDEX[Character.toLowerCase(BASES.charAt(i))] = (byte) i;
+		}
+	}
+	
+	private long reads;					// The number of reads.
+	private long bases;					// The number of acid codes in all reads.
+	private long[] qualityHistogram;	// The number of acid codes with each quality.
+	private int maxLength;				// The length of the longest read.
+	private long[] positionCounts;		// The number of reads covering each position.
+	private long[] qualitySums;			// The sum of the qualities at each position.
+	private long[][] baseCounts;		// The count of each base at each position.
+	
+	/**
+	 * Creates an empty set of statistics.
+	 */
+	public FastqStatistics() {
+		this.reads = 0;
+		this.bases = 0;
+		this.qualityHistogram = new long[MAX_QUALITY + 1];
+		this.maxLength = 0;
+		this.positionCounts = new long[0];
+		this.qualitySums = new long[0];
+		this.baseCounts = new long[BASES.length()][0];
+	}
+	
+	/**
+	 * Adds a read to the statistics.
+	 * @param read		a read from a FASTQ file
+	 */
+	public void add(FastqSequence read) {
+		int length = Math.min(read.length(), read.getQualityCount());
+		ensureLength(length);
+		// Count the base and quality at every position in one pass.
+		for (int i = 0; i < length; i++) {
+			int quality = Math.max(0, Math.min(MAX_QUALITY, read.getQuality(i)));
+			positionCounts[i]++;
+			qualitySums[i] += quality;
+			qualityHistogram[quality]++;
+			baseCounts[BASE_INDEX[read.byteAt(i) & 0xff]][i]++;
+		}
+		reads++;
+		bases += length;
+	}
+	
+	/**
+	 * Adds every read in a list to the statistics.  Sequences that
+	 * did not come from a FASTQ file are skipped.
+	 * @param list		a list of Sequence objects
+	 */
+	public void add(List<AcidSequence> list) {
+		for (AcidSequence sequence : list) {
+			if (sequence instanceof FastqSequence) {
+				add((FastqSequence) sequence);
+			}
+		}
+	}
+	
+	/**
+	 * Adds another set of statistics to this one.
+	 * @param other		statistics gathered over other reads
+	 * @return			these statistics
+	 */
+	public FastqStatistics merge(FastqStatistics other) {
+		ensureLength(other.maxLength);
+		for (int i = 0; i < other.maxLength; i++) {
+			positionCounts[i] += other.positionCounts[i];
+			qualitySums[i] += other.qualitySums[i];
+			for (int b = 0; b < BASES.length(); b++) {
+				baseCounts[b][i] += other.baseCounts[b][i];
+			}
+		}
+		for (int q = 0; q <= MAX_QUALITY; q++) {
+			qualityHistogram[q] += other.qualityHistogram[q];
+		}
+		reads += other.reads;
+		bases += other.bases;
+		return this;
+	}
+	
+	/**
+	 * The number of reads added.
+	 * @return	the number of reads
+	 */
+	public long getReadCount() {
+		return this.reads;
+	}
+	
+	/**
+	 * The number of acid codes in all reads added.
+	 * @return	the number of acid codes
+	 */
+	public long getBaseCount() {
+		return this.bases;
+	}
+	
+	/**
+	 * The length of the longest read added.
+	 * @return	the number of positions with statistics
+	 */
+	public int getMaxLength() {
+		return this.maxLength;
+	}
+	
+	/**
+	 * The number of acid codes with a quality score.
+	 * @require			0 <= quality <= MAX_QUALITY
+	 * @param quality	a Phred quality score
+	 * @return			the number of acid codes with that score
+	 */
+	public long getQualityCount(int quality) {
+		return this.qualityHistogram[quality];
+	}
+	
+	/**
+	 * The mean quality score of all acid codes.
+	 * @return	the mean Phred quality score
+	 */
+	public double getMeanQuality() {
+		long sum = 0;
+		for (int q = 0; q <= MAX_QUALITY; q++) {
+			sum += q * qualityHistogram[q];
+		}
+		return bases == 0 ? 0 : (double) sum / bases;
+	}
+	
+	/**
+	 * The mean quality score at a position of the reads.
+	 * @require				0 <= position < getMaxLength()
+	 * @param position		a position in the reads
+	 * @return				the mean Phred quality score at that position
+	 */
+	public double getMeanQuality(int position) {
+		return (double) qualitySums[position] / positionCounts[position];
+	}
+	
+	/**
+	 * The frequency of a base at a position of the reads.
+	 * @require				0 <= position < getMaxLength()
+	 * @require				BASES.indexOf(base) >= 0
+	 * @param position		a position in the reads
+	 * @param base			one of the acid codes in BASES
+	 * @return				the fraction of reads covering the position with that base
+	 */
+	public double getBaseFrequency(int position, char base) {
+		return (double) baseCounts[BASES.indexOf(base)][position] / positionCounts[position];
+	}
+	
+	/**
+	 * Grows the per-position tables to cover reads of a length.
+	 * @param length		a read length
+	 */
+	private void ensureLength(int length) {
+		if (length <= maxLength) {
+			return;
+		}
+		if (length > positionCounts.length) {
+			int capacity = Math.max(length, positionCounts.length * 2);
+			positionCounts = Arrays.copyOf(positionCounts, capacity);
+			qualitySums = Arrays.copyOf(qualitySums, capacity);
+			for (int b = 0; b < BASES.length(); b++) {
+				baseCounts[b] = Arrays.copyOf(baseCounts[b], capacity);
+			}
+		}
+		maxLength = length;
+	}
+}
@@ -0,0 +1,284 @@
+package bio.models;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The partial statistics of one shard of a sample: the count of every acid code,
+ * split into nucleic and amino acids as by determineTotals, and a histogram of
+ * sequence lengths in powers of two.  Snapshots of separate shards are merged by
+ * adding their counts, which gives the same result in any order and any grouping,
+ * so each shard can be counted on its own and a failed shard counted again alone.
+ * Each snapshot records the byte ranges of the files it covers.  Snapshots whose
+ * ranges overlap cannot be merged, so no Sequence is counted twice, and a snapshot
+ * is only complete once its ranges cover every byte of its files.
+ * @see bio.controllers.FrequencySnapshotFile
+ * @author Brian J. Walters
+ */
+public class FrequencySnapshot {
+	// Length bucket i holds lengths from 2^(i-1) up to 2^i - 1; bucket 0 holds empty sequences.
+	public static final int LENGTH_BUCKETS = 33;
+
+	private long[][] counts;			// The nucleic acid [0] and amino acid [1] histograms.
+	private long[] lengths;				// The number of sequences in each length bucket.
+	private SortedSet<Shard> shards;	// The shards counted, by file and range.
+
+	/**
+	 * Creates an empty snapshot.
+	 */
+	public FrequencySnapshot() {
+		this.counts = new long[2][AcidSequenceAnalyzer.HISTOGRAM_SIZE];
+		this.lengths = new long[LENGTH_BUCKETS];
+		this.shards = new TreeSet<Shard>();
+	}
+
+	/**
+	 * Creates an empty snapshot of a shard.
+	 * @param shard		the file and byte range of the shard
+	 */
+	public FrequencySnapshot(Shard shard) {
+		this();
+		shards.add(shard);
+	}
+
+	/**
+	 * Determines the types of a list of sequences and adds their
+	 * acid codes and lengths to the snapshot.
+	 * @param list		a list of Sequence objects, whose types are set
+	 */
+	public void add(List<AcidSequence> list) {
+		AcidSequenceAnalyzer analyzer = new AcidSequenceAnalyzer();
+		analyzer.mergeTotals(counts, analyzer.classifyAndCountInParallel(list));
+		for (AcidSequence sequence : list) {
+			lengths[getLengthBucket(sequence.length())]++;
+		}
+	}
+
+	/**
+	 * Adds the statistics of another snapshot to this one.
+	 * @param other		a snapshot of other shards
+	 * @return			this snapshot
+	 * @throws IllegalArgumentException		if a range of the other snapshot overlaps
+	 *                                      a range already counted, or was counted
+	 *                                      from a file of a different length
+	 */
+	public FrequencySnapshot merge(FrequencySnapshot other) {
+		for (Shard shard : other.shards) {
+			for (Shard counted : shards) {
+				if (shard.file.equals(counted.file) && shard.length != counted.length) {
+					throw new IllegalArgumentException("Shard " + shard + " was counted from a different " +
+													   "version of the file than shard " + counted);
+				}
+				if (shard.overlaps(counted)) {
+					throw new IllegalArgumentException("Shard " + shard + " overlaps shard " + counted +
+													   ", which was already counted");
+				}
+			}
+		}
+		for (int table = 0; table < 2; table++) {
+			for (int code = 0; code < AcidSequenceAnalyzer.HISTOGRAM_SIZE; code++) {
+				counts[table][code] += other.counts[table][code];
+			}
+		}
+		for (int bucket = 0; bucket < LENGTH_BUCKETS; bucket++) {
+			lengths[bucket] += other.lengths[bucket];
+		}
+		shards.addAll(other.shards);
+		return this;
+	}
+
+	/**
+	 * Checks that the ranges counted cover every byte of every file in the snapshot.
+	 * @throws IllegalStateException	if part of a file has not been counted
+	 */
+	public void checkComplete() {
+		Shard previous = null;
+		long covered = 0;	// The offset up to which the current file is counted.
+		// The shards are in order of file and then of range.
+		for (Shard shard : shards) {
+			if (previous != null && !shard.file.equals(previous.file)) {
+				checkCovered(previous, covered);
+				covered = 0;
+			}
+			if (shard.start > covered) {
+				throw new IllegalStateException("Bytes " + covered + " to " + shard.start + " of " +
+												shard.file + " have not been counted");
+			}
+			covered = Math.max(covered, shard.end);
+			previous = shard;
+		}
+		if (previous != null) {
+			checkCovered(previous, covered);
+		}
+	}
+
+	/**
+	 * Checks that a file is counted up to its end.
+	 * @param shard		the last shard of the file
+	 * @param covered	the offset up to which the file is counted
+	 * @throws IllegalStateException	if the end of the file has not been counted
+	 */
+	private static void checkCovered(Shard shard, long covered) {
+		if (covered < shard.length) {
+			throw new IllegalStateException("Bytes " + covered + " to " + shard.length + " of " +
+											shard.file + " have not been counted");
+		}
+	}
+
+	/**
+	 * The length bucket of a sequence.
+	 * @param length	the length of a sequence
+	 * @return			the number of bits in the length
+	 */
+	public static int getLengthBucket(int length) {
+		return 32 - Integer.numberOfLeadingZeros(length);
+	}
+
+	/**
+	 * The count of every acid code.
+	 * @return	the nucleic acid [0] and amino acid [1] histograms
+	 */
+	public long[][] getCounts() {
+		return counts;
+	}
+
+	/**
+	 * The number of sequences in each length bucket.
+	 * @see #getLengthBucket(int)
+	 * @return	the length histogram
+	 */
+	public long[] getLengthHistogram() {
+		return lengths;
+	}
+
+	/**
+	 * The number of sequences counted.
+	 * @return	the total of the length histogram
+	 */
+	public long getSequenceCount() {
+		long total = 0;
+		for (long count : lengths) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * The shards counted, in order of file and range.
+	 * @return	the shards
+	 */
+	public SortedSet<Shard> getShards() {
+		return Collections.unmodifiableSortedSet(shards);
+	}
+
+	/**
+	 * Records a shard as counted.
+	 * @param shard		the file and byte range of the shard
+	 */
+	public void addShard(Shard shard) {
+		shards.add(shard);
+	}
+
+	/**
+	 * A byte range of a file, counted as shard index of count.  The file is
+	 * named by its canonical path, so the same file is recognized however
+	 * its name was given.  A range is empty when the file is too small to
+	 * give every shard a record.
+	 */
+	public static class Shard implements Comparable<Shard> {
+		private String file;	// The canonical path of the file.
+		private long start;		// The offset of the first byte of the range.
+		private long end;		// The offset following the last byte of the range.
+		private long length;	// The length of the file.
+		private int index;		// The index of the shard, from 0.
+		private int count;		// The number of shards the file was divided into.
+
+		/**
+		 * Creates a shard.
+		 * @param file		the canonical path of the file
+		 * @param start		the offset of the first byte of the range
+		 * @param end		the offset following the last byte of the range
+		 * @param length	the length of the file
+		 * @param index		the index of the shard, from 0
+		 * @param count		the number of shards the file was divided into
+		 */
+		public Shard(String file, long start, long end, long length, int index, int count) {
+			this.file = file;
+			this.start = start;
+			this.end = end;
+			this.length = length;
+			this.index = index;
+			this.count = count;
+		}
+
+		/**
+		 * Whether this shard shares any byte with another.
+		 * @param other		a shard
+		 * @return			true if both ranges are of the same file and overlap
+		 */
+		public boolean overlaps(Shard other) {
+			return file.equals(other.file) && start < other.end && other.start < end;
+		}
+
+		public String getFile() {
+			return file;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		public long getEnd() {
+			return end;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		/**
+		 * Orders shards by file, then by range, then by index.
+		 */
+		public int compareTo(Shard other) {
+			int result = file.compareTo(other.file);
+			if (result == 0) {
+				result = Long.compare(start, other.start);
+			}
+			if (result == 0) {
+				result = Long.compare(end, other.end);
+			}
+			if (result == 0) {
+				result = Long.compare((long) count * other.index, (long) other.count * index);
+			}
+			if (result == 0) {
+				result = Integer.compare(count, other.count);
+			}
+			return result;
+		}
+
+		public boolean equals(Object other) {
+			return other instanceof Shard && compareTo((Shard) other) == 0;
+		}
+
+		public int hashCode() {
+			return file.hashCode() * 31 + Long.hashCode(start);
+		}
+
+		/**
+		 * The file, range and index of the shard.
+		 */
+		public String toString() {
+			return file + " [" + start + ", " + end + ") " + index + "/" + count;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package bio.models;
+
+/**
+ * The standard genetic code, indexed by 6-bit codon.  A codon is indexed by its
+ * three nucleotides in 2 bits each (A=0, C=1, G=2, T=3, U as T), first
+ * nucleotide highest, so translation is a lookup rather than a String match.
+ * @author Brian J. Walters
+ */
+public class GeneticCode {
+	public static final int CODONS = 64;
+	public static final char STOP = '*';
+	public static final char UNKNOWN = 'X';
+
+	// The standard code in the customary T, C, A, G order of each position.
+	private static final String STANDARD_TCAG = "FFLLSSSSYY**CC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG";
+
+	private static final byte[] CODES = new byte[256];			// Nucleotide to 2-bit code, or -1.
+	private static final char[] BASES = {'A', 'C', 'G', 'T'};	// 2-bit code to nucleotide.
+	private static final byte[] AMINO_ACIDS = new byte[CODONS];	// Codon index to amino acid.
+	static {
+		for (int i = 0; i < CODES.length; i++) {
+			CODES[i] = -1;
+		}
+		CODES['A'] = 0; CODES['a'] = 0;
+		CODES['C'] = 1; CODES['c'] = 1;
+		CODES['G'] = 2; CODES['g'] = 2;
+		CODES['T'] = 3; CODES['t'] = 3;
+		CODES['U'] = 3; CODES['u'] = 3;
+		// Reorder the standard code from T, C, A, G to A, C, G, T.
+		int[] tcag = {2, 1, 3, 0};
+		for (int codon = 0; codon < CODONS; codon++) {
+			int index = tcag[codon >> 4] * 16 + tcag[(codon >> 2) & 3] * 4 + tcag[codon & 3];
+			AMINO_ACIDS[codon] = (byte) STANDARD_TCAG.charAt(index);
+		}
+	}
+
+	/**
+	 * The 2-bit code of a nucleotide.
+	 * @param nucleotide	an acid code
+	 * @return				A=0, C=1, G=2, T or U=3, or -1 for any other code
+	 */
+	public static int encode(byte nucleotide) {
+		return CODES[nucleotide & 0xff];
+	}
+
+	/**
+	 * The index of a codon.
+	 * @param codon		three nucleotides
+	 * @return			the 6-bit index, or -1 if it is not three nucleotides
+	 */
+	public static int indexOf(String codon) {
+		if (codon.length() != 3) {
+			return -1;
+		}
+		int index = 0;
+		for (int i = 0; i < 3; i++) {
+			int code = CODES[codon.charAt(i) & 0xff];
+			if (code < 0) {
+				return -1;
+			}
+			index = (index << 2) | code;
+		}
+		return index;
+	}
+
+	/**
+	 * The codon of an index.
+	 * @param index		a 6-bit codon index
+	 * @return			its three nucleotides
+	 */
+	public static String codonOf(int index) {
+		return new String(new char[] {BASES[index >> 4], BASES[(index >> 2) & 3], BASES[index & 3]});
+	}
+
+	/**
+	 * Translates a codon.
+	 * @param index		a 6-bit codon index
+	 * @return			its amino acid, or STOP
+	 */
+	public static byte translate(int index) {
+		return AMINO_ACIDS[index];
+	}
+}
@@ -0,0 +1,262 @@
+package bio.models;
+
+import java.util.ArrayList;
+
+/**
+ * Calculates the global alignment of two sequences with affine gap penalties,
+ * using Gotoh's three-state refinement of the Needleman-Wunsch algorithm.  
+ * A gap of length L costs gapWeight + lengthWeight * L, as in the header of
+ * a GCG substitution matrix: opening a gap costs gapWeight + lengthWeight,
+ * and extending it costs lengthWeight.
+ * As in NWAligner, the scores are calculated a row at a time and only two rows
+ * of each state are kept.  Each cell's directions are packed into 4 bits: the
+ * state its best score ends in, and whether each gap state opened or extended.
+ * @see NWAligner
+ * @author Brian J. Walters
+ */
+public class GotohAligner {
+	private static final byte GAP = '-';
+	
+	// The states an alignment can end in, and the direction each came from.
+	private static final int MATCH = 0;		// both acids are aligned
+	private static final int DELETE = 1;	// the alpha acid is aligned with a gap
+	private static final int INSERT = 2;	// the beta acid is aligned with a gap
+	private static final int DELETE_OPENED = 4;	// the delete opened a gap, rather than extending one
+	private static final int INSERT_OPENED = 8;	// the insert opened a gap, rather than extending one
+	
+	// The score of an impossible state, low enough never to be chosen.
+	private static final int IMPOSSIBLE = Integer.MIN_VALUE / 2;
+	
+	private AcidSequence alpha;
+	private AcidSequence beta;
+	private int open;				// The cost of the first acid of a gap.
+	private int extend;				// The cost of every further acid of a gap.
+	
+	private byte[] alphaResidues;	// The acid codes of alpha.
+	private byte[] betaResidues;	// The acid codes of beta.
+	private int[] scores;			// The substitution score of every pair of acid codes [alpha << 7 | beta].
+	private byte[] traceback;		// The directions of every cell in the body of the matrix, 2 cells per byte.
+	private int score;				// The score of the alignment.
+	
+	/**
+	 * Sets up a new affine gap aligner, taking the gap penalties from
+	 * the gap and length weights of the substitution matrix. 
+	 * @param alpha			a Sequence to be aligned
+	 * @param beta			another Sequence to be aligned
+	 * @param subMatrix		the substitution matrix
+	 * @throws IllegalArgumentException		if a Sequence holds an acid code that is 
+	 *                                      not in the substitution matrix
+	 */
+	public GotohAligner(AcidSequence alpha,
+						AcidSequence beta,
+						SubstitutionMatrix<Integer> subMatrix) {
+		this.alpha = alpha;
+		this.beta = beta;
+		this.open = subMatrix.getGapWeight() + subMatrix.getLengthWeight();
+		this.extend = subMatrix.getLengthWeight();
+		
+		// Look up the substitution scores once, by acid code.
+		this.scores = NWAligner.createScoreTable(subMatrix);
+		this.alphaResidues = NWAligner.readResidues(alpha, subMatrix);
+		this.betaResidues = NWAligner.readResidues(beta, subMatrix);
+		
+		long cells = (long) alphaResidues.length * betaResidues.length;
+		if ((cells + 1) / 2 > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Sequences too long to align: " 
+					+ alphaResidues.length + " x " + betaResidues.length);
+		}
+		this.traceback = new byte[(int) ((cells + 1) / 2)];
+		
+		// Calculate the scores of the matrix, keeping the directions.
+		this.score = fillMatrix(null);
+	}
+	
+	/**
+	 * Calculates the scores for the matrix a row at a time, storing the
+	 * directions of each cell.  Each state's score is the best of the
+	 * alignments ending in it:
+	 *   match(a, b)  = best(a-1, b-1) + substitution score
+	 *   delete(a, b) = max(best(a-1, b) - open, delete(a-1, b) - extend)
+	 *   insert(a, b) = max(best(a, b-1) - open, insert(a, b-1) - extend)
+	 * where best is the highest of the three.
+	 * @param results		the best scores of every row are appended to this, if not null
+	 * @return				the score of the bottom-most, right-most cell
+	 */
+	private int fillMatrix(StringBuilder results) {
+		int columns = betaResidues.length;
+		int[] best = new int[columns + 1];		// The best scores of the row above, then of the row.
+		int[] deletes = new int[columns + 1];	// The delete scores of the row above, then of the row.
+		// The upper edge of the matrix is a single gap.
+		best[0] = 0;
+		deletes[0] = IMPOSSIBLE;
+		for (int b = 1; b <= columns; b++) {
+			best[b] = -open - extend * (b - 1);
+			deletes[b] = IMPOSSIBLE;
+		}
+		appendRow(results, best);
+		long cell = 0;
+		// For every row that is not the upper edge...
+		for (int a = 1; a <= alphaResidues.length; a++) {
+			int row = alphaResidues[a - 1] << 7;
+			// The left edge of the matrix is a single gap.
+			int diagonal = best[0];
+			best[0] = -open - extend * (a - 1);
+			deletes[0] = best[0];
+			int insert = IMPOSSIBLE;
+			for (int b = 1; b <= columns; b++, cell++) {
+				int directions = 0;
+				// The best alignment ending in a match...
+				int match = diagonal + scores[row | betaResidues[b - 1]];
+				// ending in a delete, opened from the cell above or extended...
+				int deleteOpen = best[b] - open;
+				int deleteExtend = deletes[b] - extend;
+				int delete;
+				if (deleteOpen >= deleteExtend) {
+					delete = deleteOpen;
+					directions |= DELETE_OPENED;
+				} else {
+					delete = deleteExtend;
+				}
+				// and ending in an insert, opened from the cell to the left or extended.
+				int insertOpen = best[b - 1] - open;
+				int insertExtend = insert - extend;
+				if (insertOpen >= insertExtend) {
+					insert = insertOpen;
+					directions |= INSERT_OPENED;
+				} else {
+					insert = insertExtend;
+				}
+				diagonal = best[b];
+				deletes[b] = delete;
+				// Prefer a match, then a delete, then an insert.
+				if (match >= delete && match >= insert) {
+					best[b] = match;
+					directions |= MATCH;
+				} else if (delete >= insert) {
+					best[b] = delete;
+					directions |= DELETE;
+				} else {
+					best[b] = insert;
+					directions |= INSERT;
+				}
+				if (results == null) {
+					traceback[(int) (cell >>> 1)] |= directions << ((cell & 1) << 2);
+				}
+			}
+			appendRow(results, best);
+		}
+		return best[columns];
+	}
+	
+	/**
+	 * Appends a row of scores to a String representation of the matrix.
+	 * @param results		the String representation, or null
+	 * @param row			the scores of the row
+	 */
+	private static void appendRow(StringBuilder results, int[] row) {
+		if (results != null) {
+			for (int value : row) {
+				results.append(value + ", ");
+			}
+			results.append("\n");
+		}
+	}
+	
+	/**
+	 * The directions of a cell in the body of the matrix.
+	 * @param a		the row of the cell
+	 * @param b		the column of the cell
+	 * @return		the state of its best score, and whether each gap state opened
+	 */
+	private int getDirections(int a, int b) {
+		long cell = (long) (a - 1) * betaResidues.length + (b - 1);
+		return (traceback[(int) (cell >>> 1)] >>> ((cell & 1) << 2)) & 15;
+	}
+	
+	/**
+	 * Create two aligned sequences with affine gap penalties. 
+	 * @return	a list containing two aligned Sequences.
+	 */
+	public ArrayList<AcidSequence> getAlignment() {
+		ArrayList<AcidSequence> alignedSequences = new ArrayList<AcidSequence>();
+		// The aligned acid codes, filled from the end.
+		int length = alphaResidues.length + betaResidues.length;
+		byte[] alignedAlpha = new byte[length];
+		byte[] alignedBeta = new byte[length];
+		int position = length;
+		// Start at the bottom-most, right-most cell on the matrix, in its best state.
+		int a = alphaResidues.length;
+		int b = betaResidues.length;
+		int state = a > 0 && b > 0 ? getDirections(a, b) & 3 : MATCH;
+		// While we have not arrived back at the start of the matrix...
+		while (a > 0 || b > 0) {
+			position--;
+			// The edges lead straight back to the upper-left corner.
+			if (a == 0) {
+				state = INSERT;
+			} else if (b == 0) {
+				state = DELETE;
+			}
+			if (state == MATCH) {
+				// put the expected acids in both sequences.
+				alignedAlpha[position] = alphaResidues[--a];
+				alignedBeta[position] = betaResidues[--b];
+				state = a > 0 && b > 0 ? getDirections(a, b) & 3 : MATCH;
+			} else if (state == DELETE) {
+				// put the expected acid in the alpha sequence and a gap in the beta sequence,
+				boolean opened = b == 0 || (getDirections(a, b) & DELETE_OPENED) != 0;
+				alignedAlpha[position] = alphaResidues[--a];
+				alignedBeta[position] = GAP;
+				// and leave the gap where it opened.
+				if (opened && a > 0 && b > 0) {
+					state = getDirections(a, b) & 3;
+				}
+			} else {
+				// put a gap in the alpha sequence and the expected acid in the beta sequence,
+				boolean opened = a == 0 || (getDirections(a, b) & INSERT_OPENED) != 0;
+				alignedAlpha[position] = GAP;
+				alignedBeta[position] = betaResidues[--b];
+				// and leave the gap where it opened.
+				if (opened && a > 0 && b > 0) {
+					state = getDirections(a, b) & 3;
+				}
+			}
+		}
+		
+		// Because the rows/columns are flipped, the order here needs to be reversed.
+		alignedSequences.add(createSequence(alignedBeta, position));
+		alignedSequences.add(createSequence(alignedAlpha, position));
+		return alignedSequences;
+	}
+	
+	/**
+	 * Creates a Sequence from the end of a buffer of aligned acid codes.
+	 * @param residues		the buffer
+	 * @param from			the index of the first aligned acid code
+	 * @return				a Sequence of the aligned acid codes
+	 */
+	private static AcidSequence createSequence(byte[] residues, int from) {
+		AcidSequence sequence = new AcidSequence();
+		sequence.appendResidues(residues, from, residues.length - from);
+		return sequence;
+	}
+	
+	/**
+	 * The score of the alignment.
+	 * @return	the best score of the bottom-most, right-most cell on the matrix
+	 */
+	public int getScore() {
+		return score;
+	}
+	
+	/**
+	 * Return a String representation of the best scores of the alignment 
+	 * matrix.  Since only two rows of scores are kept, the scores are 
+	 * calculated again.
+	 */
+	public String toString() {
+		StringBuilder results = new StringBuilder();
+		fillMatrix(results);
+		return results.toString();
+	}
+}
@@ -0,0 +1,133 @@
+package bio.models;
+
+/**
+ * A HyperLogLog estimate of the number of distinct keys in a fixed amount of
+ * memory.  The first p bits of each key's hash choose one of m = 2^p registers,
+ * which keeps the longest run of leading zeros seen in the rest of the hash.
+ * The harmonic mean of the registers estimates the number of distinct keys
+ * with a standard error of 1.04 / sqrt(m); while many registers are still
+ * empty, the count of empty registers gives a better estimate and is used
+ * instead.  Estimators of the same precision can be merged, so parts of a
+ * sample can be counted separately.
+ * @author Brian J. Walters
+ */
+public class HyperLogLog {
+	public static final int MIN_PRECISION = 4;
+	public static final int MAX_PRECISION = 18;
+
+	private int precision;		// The number of hash bits that choose a register.
+	private byte[] registers;	// The longest run of leading zeros seen by each register, plus one.
+
+	/**
+	 * Creates an empty estimator.
+	 * @param precision		the log2 of the number of registers, from
+	 *                      MIN_PRECISION to MAX_PRECISION
+	 */
+	public HyperLogLog(int precision) {
+		if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+			throw new IllegalArgumentException("Precision must be from " + MIN_PRECISION + " to " + MAX_PRECISION + ": " + precision);
+		}
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+	/**
+	 * Adds a key.
+	 * @param key		a key
+	 */
+	public void add(long key) {
+		long hash = hash(key);
+		int register = (int) (hash >>> (64 - precision));
+		// The guard bit stops the run once the hash bits are used up.
+		int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+		if (rank > registers[register]) {
+			registers[register] = (byte) rank;
+		}
+	}
+
+	/**
+	 * The approximate number of distinct keys added.
+	 * @return	the estimate
+	 */
+	public long cardinality() {
+		int m = registers.length;
+		double sum = 0;
+		int empty = 0;
+		for (byte rank : registers) {
+			sum += 1.0 / (1L << rank);
+			if (rank == 0) {
+				empty++;
+			}
+		}
+		double estimate = alpha(m) * m * m / sum;
+		// Count empty registers while the estimate is small.
+		if (estimate <= 2.5 * m && empty > 0) {
+			estimate = m * Math.log((double) m / empty);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * Adds the keys of another estimator to this one.
+	 * @param other		an estimator of the same precision
+	 * @return			this estimator
+	 */
+	public HyperLogLog merge(HyperLogLog other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("Cannot merge estimators of different precisions.");
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * The standard error of the estimate, as a fraction of the true count.
+	 * @return	1.04 / sqrt(m)
+	 */
+	public double getStandardError() {
+		return 1.04 / Math.sqrt(registers.length);
+	}
+
+	/**
+	 * The log2 of the number of registers.
+	 * @return	the precision
+	 */
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * The bias correction for a number of registers.
+	 * @param m		the number of registers
+	 * @return		the constant alpha
+	 */
+	private static double alpha(int m) {
+		switch (m) {
+		case 16:
+			return 0.673;
+		case 32:
+			return 0.697;
+		case 64:
+			return 0.709;
+		default:
+			return 0.7213 / (1 + 1.079 / m);
+		}
+	}
+
+	/**
+	 * Mixes the bits of a key, with different constants than the
+	 * CountMinSketch so the two are independent.
+	 * @param key		a key
+	 * @return			a well-distributed hash
+	 */
+	private static long hash(long key) {
+		key += 0x9e3779b97f4a7c15L;
+		key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+		key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+		return key ^ (key >>> 31);
+	}
+}
@@ -0,0 +1,69 @@
+package bio.models;
+
+/**
+ * Counts every k-mer in nucleic acid sequences exactly, in a table sized by
+ * the number of distinct k-mers.  Counters filled on separate threads can
+ * be merged.
+ * @see AbstractKmerCounter
+ * @author Brian J. Walters
+ */
+public class KmerCounter extends AbstractKmerCounter {
+	private KmerTable table;	// The count of each k-mer.
+
+	/**
+	 * Creates a new KmerCounter.
+	 * @param k				the length of the k-mers, from 1 to MAX_K
+	 * @param canonical		true to count each k-mer with its reverse complement
+	 */
+	public KmerCounter(int k, boolean canonical) {
+		super(k, canonical);
+		this.table = new KmerTable();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected void count(long kmer) {
+		table.increment(kmer);
+	}
+
+	/**
+	 * Adds the counts of another counter to this one.
+	 * @param other		a counter with the same k and mode
+	 * @return			this counter
+	 */
+	public KmerCounter merge(KmerCounter other) {
+		checkMergeable(other);
+		table.merge(other.table);
+		total += other.total;
+		return this;
+	}
+
+	/**
+	 * The count of a k-mer.  In canonical mode, this is the count
+	 * of the k-mer and its reverse complement together.
+	 * @param kmer		k nucleotides
+	 * @return			the number of times it was counted
+	 */
+	public int getCount(String kmer) {
+		long key = encode(kmer);
+		return key < 0 ? 0 : table.get(key);
+	}
+
+	/**
+	 * The number of distinct k-mers counted.
+	 * @return	the number of k-mers counted at least once
+	 */
+	public int getDistinctCount() {
+		return table.size();
+	}
+
+	/**
+	 * The table of counts, keyed by encoded k-mer.
+	 * @see #decode(long)
+	 * @return	the counts
+	 */
+	public KmerTable getTable() {
+		return table;
+	}
+}
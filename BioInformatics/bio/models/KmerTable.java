@@ -0,0 +1,159 @@
+package bio.models;
+
+import java.util.Arrays;
+
+/**
+ * A table of counts keyed by 2-bit encoded k-mers.  Keys and counts are kept
+ * in two primitive arrays with open addressing and linear probing, so no key
+ * or count is ever boxed.  The table starts small and doubles whenever it
+ * becomes half full, so its size follows the number of distinct k-mers
+ * rather than the size of the input.
+ * @author Brian J. Walters
+ */
+public class KmerTable {
+	// Marks an empty slot.  No k-mer of at most 31 codes uses all 64 bits.
+	public static final long EMPTY = -1L;
+
+	private static final int INITIAL_CAPACITY = 1 << 10;
+
+	private long[] keys;	// The k-mer in each slot, or EMPTY.
+	private int[] counts;	// The count of the k-mer in each slot.
+	private int size;		// The number of distinct k-mers.
+	private int mask;		// The number of slots, less one.
+
+	/**
+	 * Creates an empty table.
+	 */
+	public KmerTable() {
+		this.keys = new long[INITIAL_CAPACITY];
+		this.counts = new int[INITIAL_CAPACITY];
+		Arrays.fill(this.keys, EMPTY);
+		this.size = 0;
+		this.mask = INITIAL_CAPACITY - 1;
+	}
+
+	/**
+	 * Adds to the count of a k-mer.  A count stops at Integer.MAX_VALUE
+	 * rather than overflowing.
+	 * @require			key >= 0
+	 * @param key		a 2-bit encoded k-mer
+	 * @param amount	the amount to add
+	 */
+	public void add(long key, int amount) {
+		int slot = find(key);
+		if (keys[slot] == EMPTY) {
+			// Keep the table at most half full, so probes stay short.
+			if (size + 1 > (mask + 1) / 2) {
+				grow();
+				slot = find(key);
+			}
+			keys[slot] = key;
+			size++;
+		}
+		long total = (long) counts[slot] + amount;
+		counts[slot] = (int) Math.min(total, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Adds one to the count of a k-mer.
+	 * @param key		a 2-bit encoded k-mer
+	 */
+	public void increment(long key) {
+		add(key, 1);
+	}
+
+	/**
+	 * The count of a k-mer.
+	 * @param key		a 2-bit encoded k-mer
+	 * @return			the number of times it was counted
+	 */
+	public int get(long key) {
+		int slot = find(key);
+		return keys[slot] == EMPTY ? 0 : counts[slot];
+	}
+
+	/**
+	 * The number of distinct k-mers in the table.
+	 * @return	the number of k-mers counted at least once
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The k-mers in the table, in ascending order of their encoding.
+	 * @return	every k-mer counted at least once
+	 */
+	public long[] getKeys() {
+		long[] result = new long[size];
+		int i = 0;
+		for (long key : keys) {
+			if (key != EMPTY) {
+				result[i++] = key;
+			}
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Adds the counts of another table to this one.
+	 * @param other		a table of counts
+	 * @return			this table
+	 */
+	public KmerTable merge(KmerTable other) {
+		for (int slot = 0; slot < other.keys.length; slot++) {
+			if (other.keys[slot] != EMPTY) {
+				add(other.keys[slot], other.counts[slot]);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Finds the slot holding a k-mer, or the empty slot where it belongs.
+	 * @param key		a 2-bit encoded k-mer
+	 * @return			the index of the slot
+	 */
+	private int find(long key) {
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Doubles the number of slots, placing every k-mer again.
+	 */
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new long[oldKeys.length * 2];
+		counts = new int[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		mask = keys.length - 1;
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldKeys[slot] != EMPTY) {
+				int target = find(oldKeys[slot]);
+				keys[target] = oldKeys[slot];
+				counts[target] = oldCounts[slot];
+			}
+		}
+	}
+
+	/**
+	 * Mixes the bits of a k-mer, since neighbouring k-mers differ
+	 * only in their low bits.
+	 * @param key		a 2-bit encoded k-mer
+	 * @return			a well-distributed hash
+	 */
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
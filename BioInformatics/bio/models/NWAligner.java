@@ -1,150 +1,358 @@
 package bio.models;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Calculates the alignment of two sequences using the Needleman-Wunsch 
  * algorithm.  This implementation uses the algorithm provided by:
  * http://en.wikipedia.org/wiki/Needleman-Wunsch_algorithm
+ * The scores are calculated a row at a time, so only two rows of scores are
+ * kept, and the direction each cell's score came from is packed into 2 bits, 
+ * so aligning two 20,000 residue sequences needs about 100 MB.
+ * Longer sequences can be aligned with Hirschberg's algorithm, which finds 
+ * an alignment of the same optimal score in memory proportional to the
+ * lengths of the sequences, at about twice the time.  Similar sequences can 
+ * be aligned in a band around the diagonal, which is widened until the
+ * alignment found in it is proven optimal.
  * @author Brian J. Walters
  *
  */
 public class NWAligner {
+	/**
+	 * How the alignment is found: FULL keeps the direction of every cell,
+	 * HIRSCHBERG divides the matrix to keep only rows of scores, BANDED keeps
+	 * only the cells near the diagonal (or aligns as FULL once the band would
+	 * cover half the matrix), and AUTO chooses FULL unless its 
+	 * directions would take more than AUTO_LIMIT bytes, and HIRSCHBERG if so.
+	 */
+	public enum Mode { FULL, HIRSCHBERG, BANDED, AUTO }
+	
+	// The most memory AUTO lets the directions of a FULL alignment take (128 MB),
+	// enough for two 20 kb Sequences at 2 bits a cell.
+	public static final long AUTO_LIMIT = 1L << 27;
+	
+	// The number of diagonals a BANDED alignment first allows beyond the corners.
+	public static final int INITIAL_BAND = 16;
+	
+	// The score of a cell outside the band, low enough never to be chosen.
+	private static final int OUTSIDE = Integer.MIN_VALUE / 2;
+	
+	private static final byte GAP = '-';
+	
+	// The directions a cell's score can come from.
+	private static final int DIAGONAL = 0;	// the upper-left cell: both acids are aligned
+	private static final int UP = 1;		// the upper cell: the alpha acid is aligned with a gap
+	private static final int LEFT = 2;		// the left cell: the beta acid is aligned with a gap
+	
+	// The largest part of the matrix Hirschberg's algorithm aligns directly.
+	private static final int BASE_CELLS = 1 << 16;
+	
 	private AcidSequence alpha;
 	private AcidSequence beta;
 	private SubstitutionMatrix<Integer> subMatrix;
+	private Mode mode;				// FULL, HIRSCHBERG or BANDED; never AUTO.
 	
-	private ArrayList<ArrayList<NWCell>> matrix;
+	private byte[] alphaResidues;	// The acid codes of alpha.
+	private byte[] betaResidues;	// The acid codes of beta.
+	private int[] scores;			// The substitution score of every pair of acid codes [alpha << 7 | beta].
+	private byte[] traceback;		// The direction of every cell in the body of the matrix, 4 cells per byte.
+	private int score;				// The score of the alignment.
+	private int bandLow;			// The lowest diagonal (b - a) of a BANDED alignment.
+	private int bandHigh;			// The highest diagonal (b - a) of a BANDED alignment.
 	
 	/**
-	 * Sets up a new Needleman-Wunsch aligner. 
+	 * Sets up a new Needleman-Wunsch aligner, choosing the mode by the
+	 * lengths of the Sequences.  Sequences whose directions would take more
+	 * than AUTO_LIMIT bytes are aligned by HIRSCHBERG, which finds an alignment
+	 * of the same optimal score but may break ties between equally good
+	 * alignments differently than FULL. 
 	 * @param alpha			a Sequence to be aligned
 	 * @param beta			another Sequence to be aligned
 	 * @param subMatrix		the substitution matrix
+	 * @throws IllegalArgumentException		if a Sequence holds an acid code that is 
+	 *                                      not in the substitution matrix
 	 */
 	public NWAligner (AcidSequence alpha,
 			           AcidSequence beta,
 			           SubstitutionMatrix<Integer> subMatrix) {
+		this(alpha, beta, subMatrix, Mode.AUTO);
+	}
+	
+	/**
+	 * Sets up a new Needleman-Wunsch aligner. 
+	 * @param alpha			a Sequence to be aligned
+	 * @param beta			another Sequence to be aligned
+	 * @param subMatrix		the substitution matrix
+	 * @param mode			how the alignment is found
+	 * @throws IllegalArgumentException		if a Sequence holds an acid code that is 
+	 *                                      not in the substitution matrix, or the
+	 *                                      Sequences are too long for a FULL alignment
+	 */
+	public NWAligner (AcidSequence alpha,
+			           AcidSequence beta,
+			           SubstitutionMatrix<Integer> subMatrix,
+			           Mode mode) {
 		this.alpha = alpha;
 		this.beta = beta;
 		this.subMatrix = subMatrix;
 		
-		// Initialize the 2-d matrix with empty NWCells.  
-		this.matrix = new ArrayList<ArrayList<NWCell>>();
-		for (int a = 0; a < alpha.getSequence().length() + 1; a++) {
-			this.matrix.add(new ArrayList<NWCell>());
-			for (int b = 0; b < beta.getSequence().length() + 1; b++) {
-				// Initialize each cell with the two acids it intersects
-				// 0 represents an edge of the matrix.
-				String alphaValue = "0";
-				if (a == 0) {
-					alphaValue = String.valueOf(alpha.getSequence().charAt(a));
-				}
-				String betaValue = "0";
-				if (b == 0) {
-					betaValue = String.valueOf(beta.getSequence().charAt(b));
-				}
-				this.matrix.get(a).add(new NWCell(alphaValue, betaValue));
-			}
+		// Look up the substitution scores once, by acid code.
+		this.scores = createScoreTable(subMatrix);
+		this.alphaResidues = readResidues(alpha, subMatrix);
+		this.betaResidues = readResidues(beta, subMatrix);
+		
+		long tracebackSize = ((long) alphaResidues.length * betaResidues.length + 3) / 4;
+		if (mode == Mode.AUTO) {
+			mode = tracebackSize <= AUTO_LIMIT ? Mode.FULL : Mode.HIRSCHBERG;
 		}
+		this.mode = mode;
 		
-		// Calculate scores for the edges of the matrix.
-		fillEdges();
-		// Calculate score for the body of the matrix
-		fillMatrix();	
-	}
-	
-	/**
-	 * Calculates the scores for the upper and left edges of the matrix.
-	 */
-	private void fillEdges() {
-		// For each index along the alpha edge... 
-		for (int a = 0; a < alpha.getSequence().length() + 1; a++) {
-			// get the cell...
-			NWCell cell = matrix.get(a).get(0);
-			// calculate and store its score.
-			cell.setScore(-subMatrix.getGapWeight() * a);
-			
-			// if it is not the upper left corner cell (0,0)...
-			if (a != 0) {
-				// set the acids that this cell intersects
-				String alphaToken = String.valueOf(alpha.getSequence().charAt(a - 1));
-				String betaToken = String.valueOf(beta.getSequence().charAt(0));
-				cell.setAlphaBeta(alphaToken, betaToken);
-				// set the path origin of this cell (the previous edge cell).
-				cell.setOrigin(matrix.get(a-1).get(0));
-			}
-		}
-		// For each index along the beta edge...
-		for (int b = 0; b < beta.getSequence().length() + 1; b++) {
-			// get the cell...
-			NWCell cell = matrix.get(0).get(b);
-			// calculate and store its score
-			cell.setScore(-subMatrix.getGapWeight() * b);
-			
-			// if it is not the upper left corner cell (0,0)...
-			if (b != 0) {
-				// set the acids that this cell intersects
-				String alphaToken = String.valueOf(alpha.getSequence().charAt(0));
-				String betaToken = String.valueOf(beta.getSequence().charAt(b - 1));
-				cell.setAlphaBeta(alphaToken, betaToken);
-				// set the path origin of this cell (the previous edge cell).
-				cell.setOrigin(matrix.get(0).get(b-1));
-			}
-		}
-	}
-	
-	/**
-	 * Calculates the scores for the body of the matrix.
-	 */
-	private void fillMatrix() {
-		// For every cell that is not an upper or left edge...
-		for (int a = 1; a < alpha.getSequence().length() + 1; a++) {
-			for (int b = 1; b < beta.getSequence().length() + 1; b++) {
-				// get the acids that this cell intersects
-				String alphaToken = String.valueOf(alpha.getSequence().charAt(a - 1));
-				String betaToken = String.valueOf(beta.getSequence().charAt(b - 1));
-				// get the scores for the upper, left, and upper-left cells.
-				int aPrev = matrix.get(a-1).get(b).getScore();
-				int bPrev = matrix.get(a).get(b-1).getScore();
-				int diaPrev = matrix.get(a-1).get(b-1).getScore();
-				// calculate an operation score using the upper-left, upper, and left 
-				// cells, plus the gap penalty.
-				int match = diaPrev + subMatrix.get(alphaToken, betaToken);
-				int delete = aPrev + -subMatrix.getGapWeight();
-				int insert = bPrev + -subMatrix.getGapWeight();
-
-				// Get the current cell...
-				NWCell cell = matrix.get(a).get(b);
-				// If the match operation score was the highest...
-				if (match >= delete && match >= insert) {
-					// set the score using match
-					cell.setScore(match);
-					// and set the origin as the upper-left cell.
-					cell.setOrigin(matrix.get(a-1).get(b-1));
-					
-				} 
-				// otherwise if the delete operation score was the highest...
-				else if (delete >= match && delete >= insert) {
-					// set the score using delete
-					cell.setScore(delete);
-					// and set the origin as the upper cell.
-					cell.setOrigin(matrix.get(a-1).get(b));
-				} 
-				// otherwise the insert operation score must be the highest...
-				else {
-					// so set the score using insert
-					cell.setScore(insert);
-					// and set the origin as the left cell.
-					cell.setOrigin(matrix.get(a).get(b-1));
+		if (mode == Mode.BANDED) {
+			// Widen the band until the alignment in it is proven optimal.
+			alignBanded();
+			return;
+		}
+		if (mode == Mode.FULL) {
+			alignFull();
+		} else {
+			// Calculate the scores of the matrix; the directions are found later.
+			int[] lastRow = fillRows(alphaResidues, 0, alphaResidues.length, 
+									 betaResidues, 0, betaResidues.length, null);
+			this.score = lastRow[betaResidues.length];
+		}
+	}
+	
+	/**
+	 * Calculates the scores of the whole matrix, keeping the direction of every cell.
+	 * @throws IllegalArgumentException		if the Sequences are too long for a FULL alignment
+	 */
+	private void alignFull() {
+		long tracebackSize = ((long) alphaResidues.length * betaResidues.length + 3) / 4;
+		if (tracebackSize > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Sequences too long to align: " 
+					+ alphaResidues.length + " x " + betaResidues.length);
+		}
+		this.traceback = new byte[(int) tracebackSize];
+		int[] lastRow = fillRows(alphaResidues, 0, alphaResidues.length, 
+								 betaResidues, 0, betaResidues.length, traceback);
+		this.score = lastRow[betaResidues.length];
+	}
+	
+	/**
+	 * Creates a table of the substitution scores of every pair of 
+	 * single character labels in a substitution matrix.
+	 * @param subMatrix		the substitution matrix
+	 * @return				the scores, indexed by [alpha << 7 | beta]
+	 */
+	static int[] createScoreTable(SubstitutionMatrix<Integer> subMatrix) {
+		int[] table = new int[128 * 128];
+		for (String alphaLabel : subMatrix.getLabels()) {
+			for (String betaLabel : subMatrix.getLabels()) {
+				Integer value = subMatrix.get(alphaLabel, betaLabel);
+				if (alphaLabel.length() == 1 && betaLabel.length() == 1 && value != null
+						&& alphaLabel.charAt(0) < 128 && betaLabel.charAt(0) < 128) {
+					table[alphaLabel.charAt(0) << 7 | betaLabel.charAt(0)] = value;
 				}
-				// Set the acids that the cell intersects.
-				// TODO: Isn't this already done?
-				cell.setAlphaBeta(alphaToken, betaToken);
-				// Store the coordinates for the acids on their respective sequences.
-				cell.setAlphaBetaCoordinates(a, b);
 			}
 		}
+		return table;
+	}
+	
+	/**
+	 * Copies the acid codes of a Sequence, checking that every one is 
+	 * in the substitution matrix.
+	 * @param sequence		a Sequence to be aligned
+	 * @param subMatrix		the substitution matrix
+	 * @return				the acid codes
+	 * @throws IllegalArgumentException		if an acid code is not in the matrix
+	 */
+	static byte[] readResidues(AcidSequence sequence, SubstitutionMatrix<Integer> subMatrix) {
+		byte[] residues = new byte[sequence.length()];
+		readResidues(sequence, createLabelTable(subMatrix), residues);
+		return residues;
+	}
+	
+	/**
+	 * Copies the acid codes of a Sequence into a buffer, checking that every 
+	 * one is in the substitution matrix.
+	 * @param sequence		a Sequence to be aligned
+	 * @param labelled		the acid codes in the substitution matrix
+	 * @param residues		the buffer, at least as long as the Sequence
+	 * @throws IllegalArgumentException		if an acid code is not in the matrix
+	 */
+	static void readResidues(AcidSequence sequence, boolean[] labelled, byte[] residues) {
+		int length = sequence.length();
+		sequence.copyResidues(0, residues, 0, length);
+		for (int i = 0; i < length; i++) {
+			if (residues[i] < 0 || !labelled[residues[i]]) {
+				throw new IllegalArgumentException("Acid code '" + (char) (residues[i] & 0xff) 
+						+ "' at " + i + " is not in the substitution matrix.");
+			}
+		}
+	}
+	
+	/**
+	 * Marks the single character labels of a substitution matrix.
+	 * @param subMatrix		the substitution matrix
+	 * @return				true for every acid code in the matrix
+	 */
+	static boolean[] createLabelTable(SubstitutionMatrix<Integer> subMatrix) {
+		boolean[] labelled = new boolean[128];
+		for (String label : subMatrix.getLabels()) {
+			if (label.length() == 1 && label.charAt(0) < 128) {
+				labelled[label.charAt(0)] = true;
+			}
+		}
+		return labelled;
+	}
+	
+	/**
+	 * Calculates the scores for the matrix of two ranges of acid codes a row
+	 * at a time, optionally storing the direction each cell's score came from.
+	 * @param x				the acid codes down the matrix
+	 * @param xFrom			the index of the first acid code of x
+	 * @param xTo			the index following the last acid code of x
+	 * @param y				the acid codes across the matrix
+	 * @param yFrom			the index of the first acid code of y
+	 * @param yTo			the index following the last acid code of y
+	 * @param trace			the directions of the body of the matrix, or null
+	 * @return				the scores of the last row
+	 */
+	private int[] fillRows(byte[] x, int xFrom, int xTo, byte[] y, int yFrom, int yTo, byte[] trace) {
+		int[] previous = new int[yTo - yFrom + 1];
+		int[] current = new int[yTo - yFrom + 1];
+		// The upper edge of the matrix.
+		fillRow((byte) 0, y, yFrom, yTo, null, current, null, 0);
+		// For every row that is not the upper edge...
+		for (int i = xFrom; i < xTo; i++) {
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+			fillRow(x[i], y, yFrom, yTo, previous, current, trace, (long) (i - xFrom) * (yTo - yFrom));
+		}
+		return current;
+	}
+	
+	/**
+	 * Calculates the scores for a row of the matrix.
+	 * @param residue		the acid code of the row
+	 * @param y				the acid codes across the matrix
+	 * @param yFrom			the index of the first acid code of y
+	 * @param yTo			the index following the last acid code of y
+	 * @param previous		the scores of the row above, or null for the upper edge
+	 * @param current		the scores of the row
+	 * @param trace			the directions of the body of the matrix, or null
+	 * @param cell			the index in trace of the row's first body cell
+	 */
+	private void fillRow(byte residue, byte[] y, int yFrom, int yTo, 
+						 int[] previous, int[] current, byte[] trace, long cell) {
+		int gap = -subMatrix.getGapWeight();
+		// The upper edge of the matrix, and the left edge, are all gaps.
+		if (previous == null) {
+			for (int b = 0; b < current.length; b++) {
+				current[b] = gap * b;
+			}
+			return;
+		}
+		current[0] = previous[0] + gap;
+		int row = residue << 7;
+		for (int b = 1; b < current.length; b++, cell++) {
+			// Calculate an operation score using the upper-left, upper, and left 
+			// cells, plus the gap penalty.
+			int match = previous[b - 1] + scores[row | y[yFrom + b - 1]];
+			int delete = previous[b] + gap;
+			int insert = current[b - 1] + gap;
+			int direction;
+			// Prefer a match, then a delete, then an insert.
+			if (match >= delete && match >= insert) {
+				current[b] = match;
+				direction = DIAGONAL;
+			} else if (delete >= insert) {
+				current[b] = delete;
+				direction = UP;
+			} else {
+				current[b] = insert;
+				direction = LEFT;
+			}
+			if (trace != null) {
+				trace[(int) (cell >>> 2)] |= direction << ((cell & 3) << 1);
+			}
+		}
+	}
+	
+	/**
+	 * Follows the directions of a matrix back from its bottom-most, right-most
+	 * cell, filling the aligned acid codes from the end of two buffers.
+	 * @param trace			the directions of the body of the matrix
+	 * @param aFrom			the index of the first acid code of alpha in the matrix
+	 * @param aTo			the index following the last acid code of alpha
+	 * @param bFrom			the index of the first acid code of beta in the matrix
+	 * @param bTo			the index following the last acid code of beta
+	 * @param alignedAlpha	the buffer of aligned alpha acid codes
+	 * @param alignedBeta	the buffer of aligned beta acid codes
+	 * @param end			the index following the last aligned acid code to fill
+	 * @return				the index of the first aligned acid code filled
+	 */
+	private int traceBack(byte[] trace, int aFrom, int aTo, int bFrom, int bTo,
+						  byte[] alignedAlpha, byte[] alignedBeta, int end) {
+		return traceBack(trace, aFrom, aTo, bFrom, bTo, bTo - bFrom, 0, alignedAlpha, alignedBeta, end);
+	}
+	
+	/**
+	 * Follows the directions of a matrix, or of a band of it, back from its
+	 * bottom-most, right-most cell, filling the aligned acid codes from the
+	 * end of two buffers.  The direction of cell (a, b), counted from the first
+	 * body cell, is at index a * stride + b + shift of the directions.
+	 * @param trace			the directions of the body of the matrix
+	 * @param aFrom			the index of the first acid code of alpha in the matrix
+	 * @param aTo			the index following the last acid code of alpha
+	 * @param bFrom			the index of the first acid code of beta in the matrix
+	 * @param bTo			the index following the last acid code of beta
+	 * @param stride		the distance between rows of the directions
+	 * @param shift			the offset of the directions of each row
+	 * @param alignedAlpha	the buffer of aligned alpha acid codes
+	 * @param alignedBeta	the buffer of aligned beta acid codes
+	 * @param end			the index following the last aligned acid code to fill
+	 * @return				the index of the first aligned acid code filled
+	 */
+	private int traceBack(byte[] trace, int aFrom, int aTo, int bFrom, int bTo, int stride, int shift,
+						  byte[] alignedAlpha, byte[] alignedBeta, int end) {
+		int position = end;
+		int a = aTo;
+		int b = bTo;
+		// While we have not arrived back at the start of the matrix...
+		while (a > aFrom || b > bFrom) {
+			position--;
+			int direction;
+			// The edges lead straight back to the upper-left corner.
+			if (a == aFrom) {
+				direction = LEFT;
+			} else if (b == bFrom) {
+				direction = UP;
+			} else {
+				long cell = (long) (a - aFrom - 1) * stride + (b - bFrom - 1) + shift;
+				direction = (trace[(int) (cell >>> 2)] >>> ((cell & 3) << 1)) & 3;
+			}
+			switch (direction) {
+			case DIAGONAL:
+				// put the expected acids in both sequences.
+				alignedAlpha[position] = alphaResidues[--a];
+				alignedBeta[position] = betaResidues[--b];
+				break;
+			case UP:
+				// put the expected acid in the alpha sequence and a gap in the beta sequence.
+				alignedAlpha[position] = alphaResidues[--a];
+				alignedBeta[position] = GAP;
+				break;
+			default:
+				// put a gap in the alpha sequence and the expected acid in the beta sequence.
+				alignedAlpha[position] = GAP;
+				alignedBeta[position] = betaResidues[--b];
+				break;
+			}
+		}
+		return position;
 	}
 	
 	/**
@@ -153,58 +361,347 @@ public class NWAligner {
 	 */
 	public ArrayList<AcidSequence> getAlignment() {
 		ArrayList<AcidSequence> alignedSequences = new ArrayList<AcidSequence>();
-		// Create two new sequences to store the aligned sequences.
-		AcidSequence alignedAlpha = new AcidSequence();
-		AcidSequence alignedBeta = new AcidSequence();
-		// Get the length indexes of the last acids in each sequence.
-		int alphaStart = alpha.getSequence().length();
-		int betaStart = beta.getSequence().length();
-		// Get the bottom-most, right-most cell on the matrix.
-		NWCell currentCell = matrix.get(alphaStart).get(betaStart);
-		// While we have not arrived back at the start of the matrix...
-		while (currentCell.getOrigin() != null) {
-			// get the origin for the current cell.
-			NWCell origin = currentCell.getOrigin();
-			// If the origin was the upper cell...
-			if (origin.getAlphaCoordinate() == currentCell.getAlphaCoordinate()) {
-				// put a gap in the alpha sequence
-				alignedAlpha.prependSequence("-");
-				// and the expected acid in the beta sequence.
-				alignedBeta.prependSequence(currentCell.getBeta());
-			}
-			// If the origin was the left cell...
-			else if (origin.getBetaCoordinate() == currentCell.getBetaCoordinate()) {
-				// put the expected acid in the alpha sequence...
-				alignedAlpha.prependSequence(currentCell.getAlpha());
-				// and a gap in the beta sequence.
-				alignedBeta.prependSequence("-");
-			}
-			// If the origin was the upper-left cell...
-			else {
-				// put the expected acid in the alpha sequence...
-				alignedAlpha.prependSequence(currentCell.getAlpha());
-				// and the expected acid in the beta sequence.
-				alignedBeta.prependSequence(currentCell.getBeta());
-			}
-			currentCell = origin;
+		// The aligned acid codes.
+		int length = alphaResidues.length + betaResidues.length;
+		byte[] alignedAlpha = new byte[length];
+		byte[] alignedBeta = new byte[length];
+		int from;
+		int to;
+		if (mode == Mode.FULL) {
+			// Follow the directions back from the bottom-most, right-most cell.
+			from = traceBack(traceback, 0, alphaResidues.length, 0, betaResidues.length, 
+							 alignedAlpha, alignedBeta, length);
+			to = length;
+		} else if (mode == Mode.BANDED) {
+			// Follow the directions of the band back from the bottom-most, right-most cell.
+			from = traceBack(traceback, 0, alphaResidues.length, 0, betaResidues.length, 
+							 bandHigh - bandLow, -bandLow, alignedAlpha, alignedBeta, length);
+			to = length;
+		} else {
+			// Divide the matrix, aligning from the start.
+			byte[] alphaReversed = reverse(alphaResidues);
+			byte[] betaReversed = reverse(betaResidues);
+			from = 0;
+			to = divide(0, alphaResidues.length, 0, betaResidues.length, alphaReversed, betaReversed, 
+						alignedAlpha, alignedBeta, 0);
 		}
 		
 		// Because the rows/columns are flipped, the order here needs to be reversed.
-		alignedSequences.add(alignedBeta);
-		alignedSequences.add(alignedAlpha);
+		alignedSequences.add(createSequence(alignedBeta, from, to));
+		alignedSequences.add(createSequence(alignedAlpha, from, to));
 		return alignedSequences;
 	}
 	
 	/**
-	 * Return a String representation of the alignment matrix.
+	 * Aligns part of the matrix with Hirschberg's algorithm.  The middle row is
+	 * scored forwards from the upper-left corner and backwards from the lower-right
+	 * corner, the optimal path crosses it at the column where the two scores sum
+	 * highest, and the two halves on either side of that cell are aligned in turn.
+	 * @param aFrom				the index of the first acid code of alpha in the part
+	 * @param aTo				the index following the last acid code of alpha
+	 * @param bFrom				the index of the first acid code of beta in the part
+	 * @param bTo				the index following the last acid code of beta
+	 * @param alphaReversed		the acid codes of alpha, last first
+	 * @param betaReversed		the acid codes of beta, last first
+	 * @param alignedAlpha		the buffer of aligned alpha acid codes
+	 * @param alignedBeta		the buffer of aligned beta acid codes
+	 * @param start				the index of the first aligned acid code to fill
+	 * @return					the index following the last aligned acid code filled
+	 */
+	private int divide(int aFrom, int aTo, int bFrom, int bTo, byte[] alphaReversed, byte[] betaReversed,
+					   byte[] alignedAlpha, byte[] alignedBeta, int start) {
+		int rows = aTo - aFrom;
+		int columns = bTo - bFrom;
+		// Align a small part directly, following its directions.
+		if (rows <= 1 || columns == 0 || (long) rows * columns <= BASE_CELLS) {
+			byte[] trace = new byte[(int) (((long) rows * columns + 3) / 4)];
+			fillRows(alphaResidues, aFrom, aTo, betaResidues, bFrom, bTo, trace);
+			int length = rows + columns;
+			byte[] partAlpha = new byte[length];
+			byte[] partBeta = new byte[length];
+			int from = traceBack(trace, aFrom, aTo, bFrom, bTo, partAlpha, partBeta, length);
+			System.arraycopy(partAlpha, from, alignedAlpha, start, length - from);
+			System.arraycopy(partBeta, from, alignedBeta, start, length - from);
+			return start + length - from;
+		}
+		int middle = aFrom + rows / 2;
+		// Score the upper half forwards, and the lower half backwards.
+		int[] forward = fillRows(alphaResidues, aFrom, middle, betaResidues, bFrom, bTo, null);
+		int n = alphaResidues.length;
+		int m = betaResidues.length;
+		int[] backward = fillRows(alphaReversed, n - aTo, n - middle, betaReversed, m - bTo, m - bFrom, null);
+		// Find the column where the optimal path crosses the middle row.
+		int split = 0;
+		int best = Integer.MIN_VALUE;
+		for (int b = 0; b <= columns; b++) {
+			int total = forward[b] + backward[columns - b];
+			if (total > best) {
+				best = total;
+				split = b;
+			}
+		}
+		// Align the two halves.
+		int end = divide(aFrom, middle, bFrom, bFrom + split, alphaReversed, betaReversed, 
+						 alignedAlpha, alignedBeta, start);
+		return divide(middle, aTo, bFrom + split, bTo, alphaReversed, betaReversed, 
+					  alignedAlpha, alignedBeta, end);
+	}
+	
+	/**
+	 * Aligns within a band of diagonals around the corners of the matrix, doubling
+	 * the band until the alignment found in it is optimal.  The alignment is
+	 * accepted once its path keeps off the edges of the band and its score is at
+	 * least the best any path leaving the band could score.  Once the band would
+	 * cover half the matrix or more, the whole matrix is aligned as FULL instead,
+	 * which takes no more memory than the band would.
+	 * @throws IllegalArgumentException		if the Sequences are too long for a FULL alignment
+	 */
+	private void alignBanded() {
+		int n = alphaResidues.length;
+		int m = betaResidues.length;
+		for (int width = INITIAL_BAND; ; width *= 2) {
+			bandLow = Math.max(-n, Math.min(0, m - n) - width);
+			bandHigh = Math.min(m, Math.max(0, m - n) + width);
+			// Release the last band before allocating the next.
+			traceback = null;
+			if (2L * (bandHigh - bandLow + 1) >= m) {
+				mode = Mode.FULL;
+				alignFull();
+				return;
+			}
+			long tracebackSize = ((long) n * (bandHigh - bandLow + 1) + 3) / 4;
+			if (tracebackSize > Integer.MAX_VALUE - 8) {
+				throw new IllegalArgumentException("Sequences too long to align: " + n + " x " + m);
+			}
+			traceback = new byte[(int) tracebackSize];
+			score = fillBand();
+			if (!touchesBand() && score >= getOutsideBound()) {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Calculates the scores of the cells in the band a row at a time, 
+	 * storing the direction each cell's score came from.
+	 * @return	the score of the bottom-most, right-most cell
+	 */
+	private int fillBand() {
+		int n = alphaResidues.length;
+		int m = betaResidues.length;
+		int gap = -subMatrix.getGapWeight();
+		int stride = bandHigh - bandLow;
+		int[] previous = new int[m + 1];
+		int[] current = new int[m + 1];
+		// The upper edge of the matrix, as far as the band reaches.
+		for (int b = 0; b <= bandHigh; b++) {
+			current[b] = gap * b;
+		}
+		if (bandHigh < m) {
+			current[bandHigh + 1] = OUTSIDE;
+		}
+		for (int a = 1; a <= n; a++) {
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+			int first = Math.max(0, a + bandLow);
+			int last = Math.min(m, a + bandHigh);
+			// The left edge of the matrix, or the cell left of the band.
+			if (first == 0) {
+				current[0] = previous[0] + gap;
+				first = 1;
+			} else {
+				current[first - 1] = OUTSIDE;
+			}
+			int row = alphaResidues[a - 1] << 7;
+			long cell = (long) (a - 1) * stride + (first - 1) - bandLow;
+			for (int b = first; b <= last; b++, cell++) {
+				int match = previous[b - 1] + scores[row | betaResidues[b - 1]];
+				int delete = previous[b] + gap;
+				int insert = current[b - 1] + gap;
+				int direction;
+				// Prefer a match, then a delete, then an insert.
+				if (match >= delete && match >= insert) {
+					current[b] = match;
+					direction = DIAGONAL;
+				} else if (delete >= insert) {
+					current[b] = delete;
+					direction = UP;
+				} else {
+					current[b] = insert;
+					direction = LEFT;
+				}
+				traceback[(int) (cell >>> 2)] |= direction << ((cell & 3) << 1);
+			}
+			// The cell right of the band, read as the upper cell by the next row.
+			if (last < m) {
+				current[last + 1] = OUTSIDE;
+			}
+		}
+		return current[m];
+	}
+	
+	/**
+	 * Checks whether the path of a BANDED alignment runs along an edge of the 
+	 * band that is not an edge of the matrix, where a better path may have
+	 * been cut off.
+	 * @return	true if the path touches an inner edge of the band
+	 */
+	private boolean touchesBand() {
+		int n = alphaResidues.length;
+		int m = betaResidues.length;
+		int stride = bandHigh - bandLow;
+		int a = n;
+		int b = m;
+		while (a > 0 || b > 0) {
+			if ((b - a == bandLow && bandLow > -n) || (b - a == bandHigh && bandHigh < m)) {
+				return true;
+			}
+			if (a == 0) {
+				b--;
+			} else if (b == 0) {
+				a--;
+			} else {
+				long cell = (long) (a - 1) * stride + (b - 1) - bandLow;
+				int direction = (traceback[(int) (cell >>> 2)] >>> ((cell & 3) << 1)) & 3;
+				a -= direction == LEFT ? 0 : 1;
+				b -= direction == UP ? 0 : 1;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * The most any path leaving the band could score.  A path reaching a diagonal
+	 * outside the band needs a certain number of gaps, and so has at most a certain
+	 * number of matched pairs; no matched pair can score more than the best score
+	 * of its alpha acid, nor of its beta acid, against the other Sequence.
+	 * @return	an upper bound on the score of any path leaving the band
+	 */
+	private long getOutsideBound() {
+		int n = alphaResidues.length;
+		int m = betaResidues.length;
+		int gap = -subMatrix.getGapWeight();
+		// The fewest gaps of a path reaching the diagonal above or below the band.
+		long fewestGaps = Long.MAX_VALUE;
+		if (bandHigh < m) {
+			fewestGaps = Math.min(fewestGaps, 2L * (bandHigh + 1) - (m - n));
+		}
+		if (bandLow > -n) {
+			fewestGaps = Math.min(fewestGaps, (m - n) - 2L * (bandLow - 1));
+		}
+		if (fewestGaps == Long.MAX_VALUE) {
+			return Long.MIN_VALUE;
+		}
+		// The best scores of the acids of each Sequence, highest first, summed.
+		long[] alphaBest = sumBest(alphaResidues, betaResidues, 7, 0);
+		long[] betaBest = sumBest(betaResidues, alphaResidues, 0, 7);
+		// A path with d matched pairs has n + m - 2d gaps.
+		long bound = Long.MIN_VALUE;
+		long mostMatches = Math.min(Math.min(n, m), (n + m - fewestGaps) / 2);
+		for (int d = 0; d <= mostMatches; d++) {
+			bound = Math.max(bound, Math.min(alphaBest[d], betaBest[d]) + (long) (n + m - 2 * d) * gap);
+		}
+		return bound;
+	}
+	
+	/**
+	 * Sums the best substitution scores of the acid codes of one Sequence against
+	 * those of another, highest first.
+	 * @param x			the acid codes to score
+	 * @param y			the acid codes they may be matched with
+	 * @param xShift	the shift of x's acid code in the score table index
+	 * @param yShift	the shift of y's acid code in the score table index
+	 * @return			the sums of the best 0, 1, 2, ... scores
+	 */
+	private long[] sumBest(byte[] x, byte[] y, int xShift, int yShift) {
+		boolean[] present = new boolean[128];
+		for (byte residue : y) {
+			present[residue] = true;
+		}
+		// The best score of every acid code against the other Sequence.
+		int[] best = new int[128];
+		for (int code = 0; code < 128; code++) {
+			best[code] = Integer.MIN_VALUE;
+			for (int other = 0; other < 128; other++) {
+				if (present[other]) {
+					best[code] = Math.max(best[code], scores[code << xShift | other << yShift]);
+				}
+			}
+		}
+		int[] values = new int[x.length];
+		for (int i = 0; i < x.length; i++) {
+			values[i] = best[x[i]];
+		}
+		Arrays.sort(values);
+		long[] sums = new long[x.length + 1];
+		for (int i = 0; i < x.length; i++) {
+			sums[i + 1] = sums[i] + values[x.length - 1 - i];
+		}
+		return sums;
+	}
+	
+	/**
+	 * Reverses a copy of an array of acid codes.
+	 * @param residues		the acid codes
+	 * @return				the acid codes, last first
+	 */
+	private static byte[] reverse(byte[] residues) {
+		byte[] reversed = new byte[residues.length];
+		for (int i = 0; i < residues.length; i++) {
+			reversed[i] = residues[residues.length - 1 - i];
+		}
+		return reversed;
+	}
+	
+	/**
+	 * Creates a Sequence from part of a buffer of aligned acid codes.
+	 * @param residues		the buffer
+	 * @param from			the index of the first aligned acid code
+	 * @param to			the index following the last aligned acid code
+	 * @return				a Sequence of the aligned acid codes
+	 */
+	private static AcidSequence createSequence(byte[] residues, int from, int to) {
+		AcidSequence sequence = new AcidSequence();
+		sequence.appendResidues(residues, from, to - from);
+		return sequence;
+	}
+	
+	/**
+	 * The score of the alignment.
+	 * @return	the score of the bottom-most, right-most cell on the matrix
+	 */
+	public int getScore() {
+		return score;
+	}
+	
+	/**
+	 * How the alignment is found.  A BANDED alignment whose band grew to
+	 * half the matrix or more was found as FULL.
+	 * @return	FULL || HIRSCHBERG || BANDED
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+	
+	/**
+	 * Return a String representation of the alignment matrix.  Since only
+	 * two rows of scores are kept, the scores are calculated again.
 	 */
 	public String toString() {
 		StringBuilder results = new StringBuilder();
-		for (int a = 0; a < alpha.getSequence().length() + 1; a++) {
-			for (int b = 0; b < beta.getSequence().length() + 1; b++) {
-				results.append(matrix.get(a).get(b) + ", ");
+		int[] previous = new int[betaResidues.length + 1];
+		int[] current = new int[betaResidues.length + 1];
+		for (int a = 0; a < alphaResidues.length + 1; a++) {
+			fillRow(a == 0 ? 0 : alphaResidues[a - 1], betaResidues, 0, betaResidues.length, 
+					a == 0 ? null : previous, current, null, 0);
+			for (int b = 0; b < betaResidues.length + 1; b++) {
+				results.append(current[b] + ", ");
 			}
 			results.append("\n");
+			int[] swap = previous;
+			previous = current;
+			current = swap;
 		}
 		return results.toString();
 	}
@@ -0,0 +1,101 @@
+package bio.models;
+
+/**
+ * Calculates only the score of the Needleman-Wunsch alignment of two sequences,
+ * for callers such as similarity filters and distance matrices that do not need
+ * the aligned sequences.  Only two rows of scores are kept, across the shorter
+ * of the two sequences, and no directions are kept at all.  The rows and the
+ * copies of the acid codes are kept between calls and only grown when a longer
+ * sequence arrives, so scoring many pairs allocates almost nothing.
+ * NOTE: Since its buffers are reused, a scorer must not be shared between
+ *       threads; give each thread its own.
+ * @see NWAligner
+ * @author Brian J. Walters
+ */
+public class NWScorer {
+	private int gap;			// The score of aligning an acid code with a gap.
+	private int[] scores;		// The substitution score of every pair of acid codes [alpha << 7 | beta].
+	private boolean[] labelled;	// The acid codes in the substitution matrix.
+
+	private byte[] alphaResidues;	// The acid codes of the last alpha scored.
+	private byte[] betaResidues;	// The acid codes of the last beta scored.
+	private int[] previous;			// The scores of the row above.
+	private int[] current;			// The scores of the row being calculated.
+
+	/**
+	 * Creates a new scorer.
+	 * @param subMatrix		the substitution matrix
+	 */
+	public NWScorer(SubstitutionMatrix<Integer> subMatrix) {
+		this.gap = -subMatrix.getGapWeight();
+		this.scores = NWAligner.createScoreTable(subMatrix);
+		this.labelled = NWAligner.createLabelTable(subMatrix);
+		this.alphaResidues = new byte[0];
+		this.betaResidues = new byte[0];
+		this.previous = new int[1];
+		this.current = new int[1];
+	}
+
+	/**
+	 * The score of the Needleman-Wunsch alignment of two Sequences, equal to
+	 * NWAligner's getScore().
+	 * @param alpha		a Sequence to be aligned
+	 * @param beta		another Sequence to be aligned
+	 * @return			the score of the optimal alignment
+	 * @throws IllegalArgumentException		if a Sequence holds an acid code that is 
+	 *                                      not in the substitution matrix
+	 */
+	public int score(AcidSequence alpha, AcidSequence beta) {
+		int n = alpha.length();
+		int m = beta.length();
+		if (alphaResidues.length < n) {
+			alphaResidues = new byte[Math.max(n, alphaResidues.length * 2)];
+		}
+		if (betaResidues.length < m) {
+			betaResidues = new byte[Math.max(m, betaResidues.length * 2)];
+		}
+		NWAligner.readResidues(alpha, labelled, alphaResidues);
+		NWAligner.readResidues(beta, labelled, betaResidues);
+		// Run the rows down the longer sequence, so they are as short as possible.
+		if (m <= n) {
+			return score(alphaResidues, n, betaResidues, m, 7, 0);
+		}
+		return score(betaResidues, m, alphaResidues, n, 0, 7);
+	}
+
+	/**
+	 * Calculates the scores of the matrix a row at a time.
+	 * @param x				the acid codes down the matrix
+	 * @param rows			the number of acid codes of x
+	 * @param y				the acid codes across the matrix
+	 * @param columns		the number of acid codes of y
+	 * @param xShift		the shift of x's acid code in the score table index
+	 * @param yShift		the shift of y's acid code in the score table index
+	 * @return				the score of the bottom-most, right-most cell
+	 */
+	private int score(byte[] x, int rows, byte[] y, int columns, int xShift, int yShift) {
+		if (previous.length < columns + 1) {
+			previous = new int[Math.max(columns + 1, previous.length * 2)];
+			current = new int[previous.length];
+		}
+		// The upper edge of the matrix is all gaps.
+		for (int b = 0; b <= columns; b++) {
+			current[b] = gap * b;
+		}
+		for (int a = 0; a < rows; a++) {
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+			// The left edge of the matrix is all gaps.
+			current[0] = previous[0] + gap;
+			int row = x[a] << xShift;
+			for (int b = 1; b <= columns; b++) {
+				int match = previous[b - 1] + scores[row | y[b - 1] << yShift];
+				int delete = previous[b] + gap;
+				int insert = current[b - 1] + gap;
+				current[b] = Math.max(match, Math.max(delete, insert));
+			}
+		}
+		return current[columns];
+	}
+}
@@ -0,0 +1,347 @@
+package bio.models;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A list of Sequences whose acid codes are held outside the Java heap, in large
+ * direct buffers, with only a compact table of records on the heap.  Sequences
+ * added to the store are copied into it, and the Sequences read back are
+ * read-only views of the store, so a genome can be loaded and analyzed without
+ * its acid codes ever occupying the heap.
+ * The buffers start small, or at the expected size of the input, and double
+ * up to SLAB_SIZE, and each is filled to the end, so a Sequence that does not
+ * fit in the current buffer continues in the next.
+ * NOTE: The JVM limits direct memory to the maximum heap size by default;
+ *       raise it with -XX:MaxDirectMemorySize for genome-scale files.
+ * @author Brian J. Walters
+ */
+public class OffHeapSequenceStore extends AbstractList<AcidSequence> {
+	// The largest size of a direct buffer (256 MB).  A longer Sequence spans several buffers.
+	public static final int SLAB_SIZE = 1 << 28;
+
+	// The size of the first direct buffer when the size of the input is not known (64 KB).
+	public static final int INITIAL_SLAB_SIZE = 1 << 16;
+
+	private static final int INITIAL_RECORDS = 64;
+
+	private List<ByteBuffer> slabs;	// The direct buffers holding the acid codes.
+	private ByteBuffer current;		// The buffer currently being filled.
+	private int firstSlabSize;		// The size of the first buffer.
+	private int[] slabIndexes;		// The buffer holding the start of each Sequence.
+	private int[] offsets;			// The position of each Sequence in its buffer.
+	private int[] lengths;			// The number of acid codes in each Sequence.
+	private byte[] types;			// The type of each Sequence: DNA, RNA, or Protein.
+	private String[] descriptions;	// The FASTA description of each Sequence.
+	private int size;				// The number of Sequences in the store.
+	private long residueCount;		// The number of acid codes in the store.
+
+	/**
+	 * Creates an empty store.
+	 */
+	public OffHeapSequenceStore() {
+		this(INITIAL_SLAB_SIZE);
+	}
+
+	/**
+	 * Creates an empty store for about a given number of acid codes, such as
+	 * the size of the files to be added, so that a small input takes little
+	 * direct memory and a large one few buffers.
+	 * @param expectedResidues	the expected number of acid codes
+	 */
+	public OffHeapSequenceStore(long expectedResidues) {
+		this.firstSlabSize = (int) Math.max(INITIAL_SLAB_SIZE, Math.min(SLAB_SIZE, expectedResidues));
+		clear();
+	}
+
+	/**
+	 * Copies a Sequence's description, type and acid codes into the store.
+	 * The qualities of a FastqSequence are not kept.
+	 * @param sequence		a Sequence object
+	 * @return				true
+	 */
+	public boolean add(AcidSequence sequence) {
+		int length = sequence.length();
+		ensureRecords(size + 1);
+		// A Sequence begins in a buffer with room left, if it has any acid codes.
+		if (length > 0 && (current == null || !current.hasRemaining())) {
+			addSlab();
+		}
+		slabIndexes[size] = slabs.size() - 1;
+		offsets[size] = current == null ? 0 : current.position();
+		lengths[size] = length;
+		types[size] = (byte) sequence.getType();
+		descriptions[size] = sequence.getDescription();
+		// Copy the acid codes in bulk, from another store or from the heap.
+		if (sequence instanceof StoredSequence) {
+			StoredSequence stored = (StoredSequence) sequence;
+			int slab = stored.slabIndex;
+			int offset = stored.offset;
+			int remaining = length;
+			while (remaining > 0) {
+				ByteBuffer source = stored.slabs.get(slab).duplicate();
+				int count = Math.min(remaining, source.capacity() - offset);
+				source.limit(offset + count).position(offset);
+				put(source);
+				remaining -= count;
+				slab++;
+				offset = 0;
+			}
+		} else {
+			put(ByteBuffer.wrap(sequence.residues, sequence.start, length));
+		}
+		size++;
+		residueCount += length;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * A read-only view of a Sequence in the store.  Setting the type or
+	 * description of the view updates the store.
+	 * @param index		the index of a Sequence
+	 * @return			a Sequence reading its acid codes from the store
+	 */
+	public AcidSequence get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return new StoredSequence(index, slabs, slabIndexes[index], offsets[index], lengths[index]);
+	}
+
+	/**
+	 * The number of Sequences in the store.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The number of acid codes in every Sequence in the store.
+	 * @return	the total length of the Sequences
+	 */
+	public long getResidueCount() {
+		return residueCount;
+	}
+
+	/**
+	 * Removes every Sequence from the store.  The direct buffers are
+	 * released once no view of them remains.
+	 */
+	public void clear() {
+		slabs = new ArrayList<ByteBuffer>();
+		current = null;
+		slabIndexes = new int[INITIAL_RECORDS];
+		offsets = new int[INITIAL_RECORDS];
+		lengths = new int[INITIAL_RECORDS];
+		types = new byte[INITIAL_RECORDS];
+		descriptions = new String[INITIAL_RECORDS];
+		size = 0;
+		residueCount = 0;
+		modCount++;
+	}
+
+	/**
+	 * Removes the last Sequences from the store.  The space of their acid
+	 * codes is not reused.
+	 * @param fromIndex		the index of the first Sequence to remove
+	 * @param toIndex		the size of the store
+	 */
+	protected void removeRange(int fromIndex, int toIndex) {
+		if (toIndex != size) {
+			throw new UnsupportedOperationException("Only the last Sequences can be removed from the store.");
+		}
+		for (int i = fromIndex; i < toIndex; i++) {
+			residueCount -= lengths[i];
+			descriptions[i] = null;
+		}
+		size = fromIndex;
+		modCount++;
+	}
+
+	/**
+	 * Copies acid codes into the store, filling the current buffer and
+	 * continuing in new ones.
+	 * @param source	the acid codes, from its position to its limit
+	 */
+	private void put(ByteBuffer source) {
+		while (source.hasRemaining()) {
+			if (!current.hasRemaining()) {
+				addSlab();
+			}
+			int count = Math.min(current.remaining(), source.remaining());
+			ByteBuffer piece = source.duplicate();
+			piece.limit(piece.position() + count);
+			current.put(piece);
+			source.position(source.position() + count);
+		}
+	}
+
+	/**
+	 * Starts a new buffer, twice the size of the last, up to SLAB_SIZE.
+	 */
+	private void addSlab() {
+		int slabSize = current == null ? firstSlabSize : (int) Math.min(SLAB_SIZE, 2L * current.capacity());
+		current = ByteBuffer.allocateDirect(slabSize);
+		slabs.add(current);
+	}
+
+	/**
+	 * Grows the record table to hold a number of Sequences.
+	 * @param capacity		the number of Sequences to hold
+	 */
+	private void ensureRecords(int capacity) {
+		if (capacity > lengths.length) {
+			int grown = Math.max(capacity, lengths.length * 2);
+			slabIndexes = Arrays.copyOf(slabIndexes, grown);
+			offsets = Arrays.copyOf(offsets, grown);
+			lengths = Arrays.copyOf(lengths, grown);
+			types = Arrays.copyOf(types, grown);
+			descriptions = Arrays.copyOf(descriptions, grown);
+		}
+	}
+
+	/**
+	 * A read-only Sequence whose acid codes are read in place from the direct
+	 * buffers, beginning in one buffer and continuing from the start of the next.
+	 */
+	private class StoredSequence extends AcidSequence {
+		private int index;				// The index of the Sequence in the store, or -1 for a subsequence.
+		private List<ByteBuffer> slabs;	// The buffers of the store.
+		private int slabIndex;			// The buffer holding the first acid code.
+		private ByteBuffer slab;		// The buffer holding the first acid code.
+		private int offset;				// The position of the first acid code in the buffer.
+		private int length;				// The number of acid codes.
+		private int slabLength;			// The number of acid codes in the first buffer.
+
+		StoredSequence(int index, List<ByteBuffer> slabs, int slabIndex, long offset, int length) {
+			super(index < 0 ? "" : descriptions[index], new byte[0], 0, 0, true);
+			this.index = index;
+			this.slabs = slabs;
+			this.length = length;
+			// Find the buffer holding the first acid code.
+			while (length > 0 && offset >= slabs.get(slabIndex).capacity()) {
+				offset -= slabs.get(slabIndex).capacity();
+				slabIndex++;
+			}
+			this.slabIndex = slabIndex;
+			this.offset = (int) offset;
+			this.slab = length > 0 ? slabs.get(slabIndex) : null;
+			this.slabLength = length > 0 ? Math.min(length, slab.capacity() - this.offset) : 0;
+		}
+
+		public String getDescription() {
+			return index < 0 ? description : descriptions[index];
+		}
+
+		public void setDescription(String description) {
+			if (index < 0) {
+				this.description = description;
+			} else {
+				descriptions[index] = description;
+			}
+		}
+
+		public int getType() {
+			return index < 0 ? type : types[index];
+		}
+
+		public void setType(int type) {
+			if (type == DNA || type == RNA || type == PROTEIN) {
+				if (index < 0) {
+					this.type = type;
+				} else {
+					types[index] = (byte) type;
+				}
+			}
+		}
+
+		public String getSequence() {
+			byte[] codes = new byte[length];
+			copyResidues(0, codes, 0, length);
+			return new String(codes, StandardCharsets.ISO_8859_1);
+		}
+
+		public byte byteAt(int i) {
+			if (i < 0 || i >= length) {
+				throw new IndexOutOfBoundsException("Index: " + i + ", Length: " + length);
+			}
+			if (i < slabLength) {
+				return slab.get(offset + i);
+			}
+			// The acid code is in a later buffer.
+			int position = i - slabLength;
+			int next = slabIndex + 1;
+			while (position >= slabs.get(next).capacity()) {
+				position -= slabs.get(next).capacity();
+				next++;
+			}
+			return slabs.get(next).get(position);
+		}
+
+		public void copyResidues(int from, byte[] buffer, int offset, int count) {
+			if (from < 0 || count < 0 || from + count > length) {
+				throw new IndexOutOfBoundsException("Range: " + from + " to " + (from + count) + ", Length: " + length);
+			}
+			// Find the buffer holding the first acid code to copy...
+			int next = slabIndex;
+			long position = (long) this.offset + from;
+			while (count > 0 && position >= slabs.get(next).capacity()) {
+				position -= slabs.get(next).capacity();
+				next++;
+			}
+			// and copy from it and the buffers after it.
+			while (count > 0) {
+				ByteBuffer source = slabs.get(next++).duplicate();
+				int pieceLength = (int) Math.min(count, source.capacity() - position);
+				source.position((int) position);
+				source.get(buffer, offset, pieceLength);
+				offset += pieceLength;
+				count -= pieceLength;
+				position = 0;
+			}
+		}
+
+		public int length() {
+			return length;
+		}
+
+		public int getCount() {
+			return length;
+		}
+
+		public AcidSequence subSequence(int from, int to) {
+			if (from < 0 || to > length || from > to) {
+				throw new IndexOutOfBoundsException("Range: " + from + " to " + to + ", Length: " + length);
+			}
+			StoredSequence sequence = new StoredSequence(-1, slabs, slabIndex, (long) offset + from, to - from);
+			sequence.description = getDescription();
+			sequence.type = getType();
+			return sequence;
+		}
+
+		public void appendSequence(String seq) {
+			throw new UnsupportedOperationException("Sequences in the store are read-only.");
+		}
+
+		public void appendResidue(byte residue) {
+			throw new UnsupportedOperationException("Sequences in the store are read-only.");
+		}
+
+		public void appendResidues(byte[] residues, int offset, int length) {
+			throw new UnsupportedOperationException("Sequences in the store are read-only.");
+		}
+
+		public void prependSequence(String seq) {
+			throw new UnsupportedOperationException("Sequences in the store are read-only.");
+		}
+
+		public void prependResidue(byte residue) {
+			throw new UnsupportedOperationException("Sequences in the store are read-only.");
+		}
+	}
+}
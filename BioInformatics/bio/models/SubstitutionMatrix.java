@@ -99,6 +99,14 @@ public class SubstitutionMatrix<Element> {
 		this.gapWeight = gapWeight;
 	}
 	
+	/**
+	 * Sets the length weight for this substitution matrix.
+	 * @param lengthWeight	the length weight value
+	 */
+	public void setLengthWeight(int lengthWeight) {
+		this.lengthWeight = lengthWeight;
+	}
+	
 	/**
 	 * A String representation of the values in this SubstitutionMatrix.
 	 */
@@ -0,0 +1,205 @@
+package bio.models;
+
+/**
+ * Profiles the composition of a nucleic acid sequence in sliding windows: the
+ * GC content, GC skew, AT skew and Shannon entropy of each window.  The windows
+ * are visited in order with next(), and only the acid codes that leave and enter
+ * the window as it slides are counted, so every position of the sequence is
+ * read at most twice whatever the size of the window.  Codes other than A, C, G,
+ * T and U (such as N) take up space in a window but are not counted.
+ * @author Brian J. Walters
+ */
+public class WindowProfiler {
+	private static final int BLOCK_SIZE = 1 << 16;	// Acid codes copied out of a Sequence at a time.
+
+	private static final byte[] CLASSES = new byte[256];	// Acid code to A=0, C=1, G=2, T=3, or 4.
+	static {
+		for (int i = 0; i < CLASSES.length; i++) {
+			CLASSES[i] = 4;
+		}
+		CLASSES['A'] = 0; CLASSES['a'] = 0;
+		CLASSES['C'] = 1; CLASSES['c'] = 1;
+		CLASSES['G'] = 2; CLASSES['g'] = 2;
+		CLASSES['T'] = 3; CLASSES['t'] = 3;
+		CLASSES['U'] = 3; CLASSES['u'] = 3;
+	}
+
+	private int windowSize;		// The number of acid codes in a window.
+	private int step;			// The distance from one window to the next.
+	private int[] counts;		// The count of A, C, G, T and other codes in the window.
+	private int start;			// The position of the current window, or -1 before the first.
+	private Cursor leading;		// Reads the codes entering the window.
+	private Cursor trailing;	// Reads the codes leaving the window.
+	private int length;			// The length of the Sequence being profiled.
+
+	/**
+	 * Creates a new WindowProfiler.
+	 * @param windowSize	the number of acid codes in a window
+	 * @param step			the distance from one window to the next
+	 */
+	public WindowProfiler(int windowSize, int step) {
+		if (windowSize < 1 || step < 1) {
+			throw new IllegalArgumentException("Window size and step must be positive: " + windowSize + ", " + step);
+		}
+		this.windowSize = windowSize;
+		this.step = step;
+		this.counts = new int[5];
+		this.leading = new Cursor();
+		this.trailing = new Cursor();
+	}
+
+	/**
+	 * Prepares to profile the windows of a Sequence.
+	 * @param sequence		a Sequence of nucleotides
+	 */
+	public void profile(AcidSequence sequence) {
+		leading.reset(sequence);
+		trailing.reset(sequence);
+		length = sequence.length();
+		start = -1;
+	}
+
+	/**
+	 * Moves to the next window of the Sequence.
+	 * @return	false if there are no more windows
+	 */
+	public boolean next() {
+		int next = start < 0 ? 0 : start + step;
+		if (next + windowSize > length) {
+			return false;
+		}
+		if (start >= 0 && step < windowSize) {
+			// The windows overlap, so only count the codes that leave and enter.
+			for (int i = start; i < next; i++) {
+				counts[CLASSES[trailing.get(i) & 0xff]]--;
+			}
+			for (int i = start + windowSize; i < next + windowSize; i++) {
+				counts[CLASSES[leading.get(i) & 0xff]]++;
+			}
+		} else {
+			// The windows are disjoint, so count the new window afresh.
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = 0;
+			}
+			for (int i = next; i < next + windowSize; i++) {
+				counts[CLASSES[leading.get(i) & 0xff]]++;
+			}
+		}
+		start = next;
+		return true;
+	}
+
+	/**
+	 * The number of windows in a Sequence of a given length.
+	 * @param length		the length of a Sequence
+	 * @return				the number of windows next() will visit
+	 */
+	public int getWindowCount(int length) {
+		return length < windowSize ? 0 : (length - windowSize) / step + 1;
+	}
+
+	/**
+	 * The position of the current window.
+	 * @return	the position of its first acid code
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * The fraction of the nucleotides in the current window that are G or C.
+	 * @return	(G + C) / (A + C + G + T), or 0 if there are none
+	 */
+	public double getGcContent() {
+		int total = counts[0] + counts[1] + counts[2] + counts[3];
+		return total == 0 ? 0 : (double) (counts[1] + counts[2]) / total;
+	}
+
+	/**
+	 * The GC skew of the current window.
+	 * @return	(G - C) / (G + C), or 0 if there are neither
+	 */
+	public double getGcSkew() {
+		return skew(counts[2], counts[1]);
+	}
+
+	/**
+	 * The AT skew of the current window.
+	 * @return	(A - T) / (A + T), or 0 if there are neither
+	 */
+	public double getAtSkew() {
+		return skew(counts[0], counts[3]);
+	}
+
+	/**
+	 * The Shannon entropy of the nucleotides in the current window.
+	 * @return	the entropy in bits, from 0 to 2
+	 */
+	public double getEntropy() {
+		int total = counts[0] + counts[1] + counts[2] + counts[3];
+		double entropy = 0;
+		for (int i = 0; i < 4; i++) {
+			if (counts[i] > 0) {
+				double p = (double) counts[i] / total;
+				entropy -= p * Math.log(p);
+			}
+		}
+		return entropy / Math.log(2);
+	}
+
+	/**
+	 * The number of acid codes in a window.
+	 * @return	the window size
+	 */
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	/**
+	 * The distance from one window to the next.
+	 * @return	the step
+	 */
+	public int getStep() {
+		return step;
+	}
+
+	/**
+	 * The skew of one count over another.
+	 * @param a		a count
+	 * @param b		another count
+	 * @return		(a - b) / (a + b), or 0 if both are 0
+	 */
+	private static double skew(int a, int b) {
+		return a + b == 0 ? 0 : (double) (a - b) / (a + b);
+	}
+
+	/**
+	 * Reads the acid codes of a Sequence in ascending order of position,
+	 * copying them out a block at a time.
+	 */
+	private static class Cursor {
+		private AcidSequence sequence;	// The Sequence being read.
+		private byte[] block;			// The codes copied out of the Sequence.
+		private int blockStart;			// The position of the first code in the block.
+		private int blockEnd;			// The position following the last code in the block.
+
+		Cursor() {
+			this.block = new byte[BLOCK_SIZE];
+		}
+
+		void reset(AcidSequence sequence) {
+			this.sequence = sequence;
+			this.blockStart = 0;
+			this.blockEnd = 0;
+		}
+
+		byte get(int position) {
+			if (position >= blockEnd) {
+				blockStart = position;
+				blockEnd = Math.min(position + block.length, sequence.length());
+				sequence.copyResidues(blockStart, block, 0, blockEnd - blockStart);
+			}
+			return block[position - blockStart];
+		}
+	}
+}
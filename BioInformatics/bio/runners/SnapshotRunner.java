@@ -0,0 +1,128 @@
+package bio.runners;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import bio.controllers.FastaSplitter;
+import bio.controllers.FrequencySnapshotFile;
+import bio.controllers.Reporter;
+import bio.controllers.SequenceReader;
+import bio.models.AcidSequence;
+import bio.models.FrequencySnapshot;
+import bio.models.FrequencySnapshot.Shard;
+
+/**
+ * Counts the acid codes of a sample in shards, which may run on separate machines
+ * and at separate times, and merges the snapshots of the shards into a report.
+ *
+ *   count  SNAPSHOT FILE [SHARD SHARDS]   count a file, or shard SHARD (from 0) of
+ *                                         SHARDS equal byte ranges of it
+ *   merge  SNAPSHOT SNAPSHOT...           merge snapshots into one
+ *   report REPORT SNAPSHOT...             merge snapshots into a frequency report
+ *
+ * A file is always divided into the same byte ranges, so a failed shard
+ * can be counted again alone.  Each snapshot records the canonical path and
+ * byte range of its shard, so snapshots of overlapping ranges, such as shards
+ * of the same file counted with different SHARDS, are refused when merged, and
+ * no report is written until every byte of every file has been counted.  A
+ * compressed file cannot be divided and must be counted as a single shard.
+ * @author Brian J. Walters
+ *
+ */
+public class SnapshotRunner {
+	public static void main (String[] args) {
+		try {
+			if (args.length >= 3 && args[0].equals("count") && (args.length == 3 || args.length == 5)) {
+				int shard = args.length == 5 ? Integer.parseInt(args[3]) : 0;
+				int shards = args.length == 5 ? Integer.parseInt(args[4]) : 1;
+				new FrequencySnapshotFile().write(count(args[2], shard, shards), args[1]);
+			} else if (args.length >= 3 && args[0].equals("merge")) {
+				new FrequencySnapshotFile().write(merge(args, 2), args[1]);
+			} else if (args.length >= 3 && args[0].equals("report")) {
+				report(merge(args, 2), args[1]);
+			} else {
+				System.out.println("Usage: SnapshotRunner count SNAPSHOT FILE [SHARD SHARDS]");
+				System.out.println("       SnapshotRunner merge SNAPSHOT SNAPSHOT...");
+				System.out.println("       SnapshotRunner report REPORT SNAPSHOT...");
+				System.exit(2);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Counts one shard of a file.
+	 * @param file		a FASTA or FASTQ file
+	 * @param shard		the index of the shard, from 0
+	 * @param shards	the number of shards the file is divided into
+	 * @return			the snapshot of the shard
+	 * @throws IOException	if the file cannot be read
+	 */
+	private static FrequencySnapshot count(String file, int shard, int shards) throws IOException {
+		if (shard < 0 || shard >= shards) {
+			throw new IllegalArgumentException("Shard must be from 0 to " + (shards - 1) + ": " + shard);
+		}
+		String path = new File(file).getCanonicalPath();
+		if (!new File(path).isFile()) {
+			throw new IOException("Not a file: " + path);
+		}
+		if (SequenceReader.isCompressed(path) && shards > 1) {
+			throw new IllegalArgumentException("A compressed file must be counted as a single shard: " + path);
+		}
+		long length = new File(path).length();
+		long[] offsets = new FastaSplitter().split(path, shards);
+		// A file too small for every shard leaves the last shards with an empty range at its end.
+		long start = shard < offsets.length - 1 ? offsets[shard] : length;
+		long end = shard < offsets.length - 1 ? Math.min(offsets[shard + 1], length) : length;
+		FrequencySnapshot snapshot = new FrequencySnapshot(new Shard(path, start, end, length, shard, shards));
+		if (start < end) {
+			try (SequenceReader reader = SequenceReader.open(path, offsets[shard], offsets[shard + 1])) {
+				List<AcidSequence> list = new ArrayList<AcidSequence>(100);
+				AcidSequence sequence;
+				while ((sequence = reader.nextSequence()) != null) {
+					list.add(sequence);
+					if (list.size() == 100) {
+						snapshot.add(list);
+						list = new ArrayList<AcidSequence>(100);
+					}
+				}
+				snapshot.add(list);
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Reads and merges snapshot files.
+	 * @param filenames		the snapshot files, from the given index
+	 * @param first			the index of the first snapshot file
+	 * @return				the merged snapshot
+	 * @throws Exception	if a snapshot cannot be read or overlaps one already merged
+	 */
+	private static FrequencySnapshot merge(String[] filenames, int first) throws Exception {
+		FrequencySnapshotFile file = new FrequencySnapshotFile();
+		FrequencySnapshot snapshot = new FrequencySnapshot();
+		for (int i = first; i < filenames.length; i++) {
+			snapshot.merge(file.read(filenames[i]));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Writes the totals, frequencies and lengths of a snapshot to a report.
+	 * @param snapshot		a snapshot
+	 * @param filename		the report file
+	 * @throws IllegalStateException	if part of a file has not been counted
+	 */
+	private static void report(FrequencySnapshot snapshot, String filename) {
+		snapshot.checkComplete();
+		Reporter reporter = new Reporter(filename);
+		reporter.createFrequencyReport(snapshot.getCounts(), "Frequencies");
+		reporter.createLengthReport(snapshot.getLengthHistogram(), "Lengths");
+		reporter.close();
+	}
+}
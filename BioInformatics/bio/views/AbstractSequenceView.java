@@ -1,81 +1,490 @@
 package bio.views;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 
 import bio.controllers.ChunkParser;
+import bio.controllers.FastaSplitter;
 import bio.controllers.FileParser;
 import bio.controllers.Reporter;
+import bio.controllers.SequenceReader;
+import bio.controllers.WindowProfileWriter;
 import bio.models.AcidSequenceAnalyzer;
 import bio.models.AcidSequence;
+import bio.models.CodonUsage;
+import bio.models.ApproximateKmerCounter;
+import bio.models.FastqStatistics;
+import bio.models.KmerCounter;
+import bio.models.OffHeapSequenceStore;
 
 public abstract class AbstractSequenceView extends AbstractView {
+	// The number of chunks parsed ahead of the analysis when chunking.
+	public static final int READ_AHEAD = 4;
+	// The number of Sequences read from a range at a time when reducing ranges.
+	public static final int CHUNK_SIZE = 100;
+	
 	/**
 	 * Given FASTA files, returns the results of parsing each of the files and
 	 * counting the number of each individual acid code. 
+	 * NOTE: The acid codes are held off the heap while the sample is analyzed,
+	 *       and the analysis is spread across every core.  The store is sized
+	 *       from the lengths of the files, so a small sample takes little memory.
 	 * @param files    Any number of FASTA files to be parsed.
 	 * @return         a list containing separate totals for nucleic and amino acids.  
 	 */
 	protected List<Hashtable<String,Integer>> reportEntireSample(String... files) {
 		FileParser fileParser = new FileParser();
 		AcidSequenceAnalyzer analyzer = new AcidSequenceAnalyzer();
-		List<AcidSequence> list = new ArrayList<AcidSequence>();
+		long size = 0;
+		for (String file : files) {
+			size += new File(file).length();
+		}
+		OffHeapSequenceStore list = new OffHeapSequenceStore(size);
 		// For every provided file...
 		for (String file : files) {
-			// parse the file and add the resulting list of sequences to the complete list.
-			list.addAll(fileParser.parseFile(file));
+			// parse the file and add the resulting sequences to the complete store.
+			fileParser.storeFile(file, list);
 		}
-		// Determine the types for each sequence in the list.
-		// (Whether DNA, RNA, or Protein)
-		analyzer.determineTypes(list);
-		// Calculate the totals for nucleic acids and amino acids.
+		// Determine the types for each sequence in the list (whether DNA, RNA, 
+		// or Protein) and calculate the totals for nucleic acids and amino acids,
+		// in the same pass.
 		// NOTE: Since acid codes overlap, we give the analyzer ONE list of sequences
 		//       but are given back two hashtables - one for amino acid codes, and one for 
 		//       nucleic acid codes.
-		List<Hashtable<String, Integer>> data = analyzer.determineTotals(list);
+		List<Hashtable<String, Integer>> data = analyzer.determineTypesAndTotalsInParallel(list);
 		return data;
 	}
 	
 	/**
 	 * Given FASTA files, returns the results of parsing each of the files and
 	 * counting the number of each individual acid code.
-	 * NOTE: Uses chunking, which is required for large files.
+	 * NOTE: Uses chunking, which is required for large files.  The next chunks
+	 *       are parsed on a background thread while the current ones are analyzed,
+	 *       each chunk as a fork-join task spread across every core.
 	 * @param files    Any number of FASTA files to be parsed.
 	 * @return         a list containing separate totals for nucleic and amino acids.  
 	 */
 	protected List<Hashtable<String,Integer>> reportEntireSampleByChunking(String... files) {
-		AcidSequenceAnalyzer analyzer = new AcidSequenceAnalyzer();
+		final AcidSequenceAnalyzer analyzer = new AcidSequenceAnalyzer();
+		ForkJoinPool pool = ForkJoinPool.commonPool();
 		// Prepare our data structure.
-		List<Hashtable<String, Integer>> aggregateData = new ArrayList<Hashtable<String,Integer>>();
-		aggregateData.add(new Hashtable<String, Integer>());
-		aggregateData.add(new Hashtable<String, Integer>());
+		long[][] aggregateCounts = new long[2][AcidSequenceAnalyzer.HISTOGRAM_SIZE];
+		// The chunks being analyzed, at most two per core so that parsing cannot run far ahead.
+		Deque<ForkJoinTask<long[][]>> pending = new ArrayDeque<ForkJoinTask<long[][]>>();
 		
 		// For every provided file...
 		for (String file : files) {
 			List<AcidSequence> list = new ArrayList<AcidSequence>();
-			// prepare a chunk parser for the file.
-			ChunkParser parser = new ChunkParser(file);
+			// prepare a chunk parser for the file which reads ahead.
+			ChunkParser parser = new ChunkParser(file, 100, READ_AHEAD);
 			// Until the file is empty, do...
 			do {
 				// Get a chunk of the file and store the sequences in a list.
 				list = parser.parseChunk();
-				// Determine the types for those chunks of sequences.
-				analyzer.determineTypes(list);
-				// Calculate the total amino for those chunks of sequences.
-				// NOTE: Since acid codes overlap, we give the analyzer ONE list of sequences
-				//       but are given back two hashtables - one for amino acid codes, and one for 
-				//       nucleic acid codes.
-				List<Hashtable<String,Integer>> currentData = analyzer.determineTotals(list);
-				// Aggregate the results so that memory the sequences can be freed.
-				aggregateData = analyzer.aggregateTotals(aggregateData, currentData);
-				// The list of sequences and the hashtables of calculations are "freed" 
-				// each iteration to be GCed.  
+				final List<AcidSequence> chunk = list;
+				// Analyze the chunk on the pool while the next one is parsed.
+				pending.add(pool.submit(new Callable<long[][]>() {
+					public long[][] call() {
+						// Determine the types for those chunks of sequences, and count
+						// their nucleic and amino acids in the same pass.
+						return analyzer.classifyAndCountInParallel(chunk);
+					}
+				}));
+				// Aggregate the results of the oldest chunks so that their sequences can be freed.
+				while (pending.size() > 2 * pool.getParallelism()) {
+					analyzer.mergeTotals(aggregateCounts, pending.poll().join());
+				}
+			} while (list.size() > 0);
+			parser.close();
+		}
+		while (!pending.isEmpty()) {
+			analyzer.mergeTotals(aggregateCounts, pending.poll().join());
+		}
+		// NOTE: Since acid codes overlap, the counts are kept as two hashtables - 
+		//       one for amino acid codes, and one for nucleic acid codes.
+		return analyzer.tabulateTotals(aggregateCounts);
+	}
+	
+	/**
+	 * Given FASTA files, returns the results of parsing each of the files and
+	 * counting the number of each individual acid code.
+	 * NOTE: Each file is split into byte ranges which are chunk parsed and counted
+	 *       on separate threads, one range per available processor.
+	 * @param files    Any number of FASTA files to be parsed.
+	 * @return         a list containing separate totals for nucleic and amino acids.  
+	 * @throws IOException   if a file cannot be read
+	 */
+	protected List<Hashtable<String,Integer>> reportEntireSampleInParallel(String... files) throws IOException {
+		final AcidSequenceAnalyzer analyzer = new AcidSequenceAnalyzer();
+		long[][] aggregateCounts = reduceRanges(new RangeReducer<long[][]>() {
+			public long[][] create() {
+				return new long[2][AcidSequenceAnalyzer.HISTOGRAM_SIZE];
+			}
+			public void add(long[][] counts, List<AcidSequence> chunk) {
+				// Classify and count every sequence in a single pass.
+				for (AcidSequence sequence : chunk) {
+					analyzer.classifyAndCount(sequence, counts);
+				}
+			}
+			public long[][] merge(long[][] total, long[][] counts) {
+				return analyzer.mergeTotals(total, counts);
+			}
+		}, files);
+		// NOTE: Since acid codes overlap, the counts are kept as two hashtables - 
+		//       one for amino acid codes, and one for nucleic acid codes.
+		return analyzer.tabulateTotals(aggregateCounts);
+	}
+	
+	/**
+	 * Builds a result from the Sequences of a sample one byte range at a time,
+	 * so that each range can be analyzed on its own thread.
+	 * @see AbstractSequenceView#reduceRanges(RangeReducer, String...)
+	 * @param <T>	the type of the result
+	 */
+	protected interface RangeReducer<T> {
+		/**
+		 * Creates an empty result for a range.
+		 * @return		a new result
+		 */
+		T create();
+		
+		/**
+		 * Adds a chunk of Sequences from a range to the range's result.
+		 * @param partial	the result of the range
+		 * @param chunk		the next Sequences of the range
+		 */
+		void add(T partial, List<AcidSequence> chunk);
+		
+		/**
+		 * Merges the result of a range into the total.
+		 * @param total		the results of the ranges merged so far
+		 * @param partial	the result of one more range
+		 * @return			the merged result
+		 */
+		T merge(T total, T partial);
+	}
+	
+	/**
+	 * Builds a result from every Sequence of the given files.  Each file is split
+	 * into byte ranges, one per available processor, and each range is read in
+	 * chunks into its own result on a separate thread.  The results of the ranges
+	 * are merged in file order.
+	 * @param reducer			builds and merges the result of each range
+	 * @param files				Any number of FASTA or FASTQ files to be parsed.
+	 * @return					the merged result of every range
+	 * @throws IOException		if a file cannot be read; no partial result is returned
+	 */
+	protected <T> T reduceRanges(final RangeReducer<T> reducer, String... files) throws IOException {
+		FastaSplitter splitter = new FastaSplitter();
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		T total = reducer.create();
+		
+		try {
+			List<Future<T>> partials = new ArrayList<Future<T>>();
+			// For every provided file...
+			for (final String file : files) {
+				// split the file into ranges...
+				long[] offsets = splitter.split(file, threads);
+				// and build the result of each range on its own thread.
+				for (int range = 0; range < offsets.length - 1; range++) {
+					final long start = offsets[range];
+					final long end = offsets[range + 1];
+					partials.add(executor.submit(new Callable<T>() {
+						public T call() throws IOException {
+							return reduceRange(reducer, file, start, end);
+						}
+					}));
+				}
+			}
+			// Merge the results of every range.
+			for (Future<T> partial : partials) {
+				total = reducer.merge(total, partial.get());
+			}
+		} catch (ExecutionException e) {
+			// Rethrow the failure of a range as it was thrown.
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading the sample.");
+		} finally {
+			// Stop the remaining ranges if one has failed.
+			executor.shutdownNow();
+		}
+		return total;
+	}
+	
+	/**
+	 * Builds the result of a byte range of a file, reading it in chunks.
+	 * @param reducer			builds the result of the range
+	 * @param file				a FASTA or FASTQ file
+	 * @param start				the offset of the first byte of the range
+	 * @param end				the offset following the last byte of the range
+	 * @return					the result of the range
+	 * @throws IOException		if the file cannot be read
+	 */
+	private static <T> T reduceRange(RangeReducer<T> reducer, String file, long start, long end)
+			throws IOException {
+		T partial = reducer.create();
+		try (SequenceReader reader = SequenceReader.open(file, start, end)) {
+			List<AcidSequence> chunk = new ArrayList<AcidSequence>(CHUNK_SIZE);
+			AcidSequence sequence;
+			while ((sequence = reader.nextSequence()) != null) {
+				chunk.add(sequence);
+				if (chunk.size() == CHUNK_SIZE) {
+					reducer.add(partial, chunk);
+					chunk = new ArrayList<AcidSequence>(CHUNK_SIZE);
+				}
+			}
+			if (!chunk.isEmpty()) {
+				reducer.add(partial, chunk);
+			}
+		}
+		return partial;
+	}
+	
+	/**
+	 * Given FASTQ files, gathers quality and composition statistics over
+	 * every read in a single pass.
+	 * NOTE: Each file is split into byte ranges which are chunk parsed on 
+	 *       separate threads, so no file is ever held in memory.
+	 * @param files    Any number of FASTQ files to be parsed.
+	 * @return         the statistics for all of the reads.
+	 * @throws IOException   if a file cannot be read
+	 */
+	protected FastqStatistics reportQualityStatistics(String... files) throws IOException {
+		return reduceRanges(new RangeReducer<FastqStatistics>() {
+			public FastqStatistics create() {
+				return new FastqStatistics();
+			}
+			public void add(FastqStatistics statistics, List<AcidSequence> chunk) {
+				statistics.add(chunk);
+			}
+			public FastqStatistics merge(FastqStatistics total, FastqStatistics statistics) {
+				return total.merge(statistics);
+			}
+		}, files);
+	}
+	
+	/**
+	 * Given FASTA or FASTQ files, counts every k-mer of their nucleic acid sequences.
+	 * NOTE: Each file is split into byte ranges which are chunk parsed and counted 
+	 *       on separate threads, each into its own counter, and the counters are
+	 *       merged at the end.
+	 * @param k            the length of the k-mers, from 1 to 31
+	 * @param canonical    true to count each k-mer with its reverse complement
+	 * @param files        Any number of files to be parsed.
+	 * @return             the counts of every k-mer.
+	 * @throws IOException   if a file cannot be read
+	 */
+	protected KmerCounter reportKmers(final int k, final boolean canonical, String... files) throws IOException {
+		final AcidSequenceAnalyzer analyzer = new AcidSequenceAnalyzer();
+		return reduceRanges(new RangeReducer<KmerCounter>() {
+			public KmerCounter create() {
+				return new KmerCounter(k, canonical);
+			}
+			public void add(KmerCounter counter, List<AcidSequence> chunk) {
+				// Only nucleic acid sequences are counted.
+				analyzer.determineTypes(chunk);
+				counter.add(chunk);
+			}
+			public KmerCounter merge(KmerCounter total, KmerCounter counter) {
+				return total.merge(counter);
+			}
+		}, files);
+	}
+	
+	/**
+	 * Given FASTA or FASTQ files, approximately counts the k-mers of their nucleic
+	 * acid sequences in a fixed amount of memory for each thread.
+	 * NOTE: Each file is split into byte ranges which are chunk parsed and counted 
+	 *       on separate threads, each into its own sketch, and the sketches are
+	 *       merged at the end.
+	 * @param k            the length of the k-mers, from 1 to 31
+	 * @param canonical    true to count each k-mer with its reverse complement
+	 * @param files        Any number of files to be parsed.
+	 * @return             the approximate counts of the k-mers.
+	 * @throws IOException   if a file cannot be read
+	 */
+	protected ApproximateKmerCounter reportApproximateKmers(final int k, final boolean canonical, String... files) 
+			throws IOException {
+		final AcidSequenceAnalyzer analyzer = new AcidSequenceAnalyzer();
+		return reduceRanges(new RangeReducer<ApproximateKmerCounter>() {
+			public ApproximateKmerCounter create() {
+				return new ApproximateKmerCounter(k, canonical);
+			}
+			public void add(ApproximateKmerCounter counter, List<AcidSequence> chunk) {
+				// Only nucleic acid sequences are counted.
+				analyzer.determineTypes(chunk);
+				counter.add(chunk);
+			}
+			public ApproximateKmerCounter merge(ApproximateKmerCounter total, ApproximateKmerCounter counter) {
+				return total.merge(counter);
+			}
+		}, files);
+	}
+	
+	/**
+	 * Writes the approximate k-mer statistics and their error bounds to a file.
+	 * @param counter       the approximate k-mer counts
+	 * @param filename      the name of the file to store the results
+	 */
+	protected void saveApproximateKmerStatistics(ApproximateKmerCounter counter, String filename) {
+		Reporter reporter = new Reporter(filename);
+		reporter.createApproximateKmerReport(counter,
+			StringUtils.substringAfterLast(StringUtils.substringBeforeLast(filename, "."), "\\"));
+		reporter.close();
+	}
+	
+	/**
+	 * Given FASTA or FASTQ files, counts the codons of their nucleic acid
+	 * sequences in all six reading frames, without translating them.
+	 * NOTE: The files are chunk parsed ahead, and each chunk is counted into its
+	 *       own table on the fork-join pool while the next is parsed.
+	 * @param files        Any number of files to be parsed.
+	 * @return             the codon counts of every frame.
+	 */
+	protected CodonUsage reportCodonUsage(String... files) {
+		final AcidSequenceAnalyzer analyzer = new AcidSequenceAnalyzer();
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		CodonUsage usage = new CodonUsage();
+		// The chunks being counted, at most two per core so that parsing cannot run far ahead.
+		Deque<ForkJoinTask<CodonUsage>> pending = new ArrayDeque<ForkJoinTask<CodonUsage>>();
+		
+		// For every provided file...
+		for (String file : files) {
+			List<AcidSequence> list;
+			// prepare a chunk parser for the file which reads ahead.
+			ChunkParser parser = new ChunkParser(file, 100, READ_AHEAD);
+			// Until the file is empty, do...
+			do {
+				list = parser.parseChunk();
+				final List<AcidSequence> chunk = list;
+				// Count the chunk on the pool while the next one is parsed.
+				pending.add(pool.submit(new Callable<CodonUsage>() {
+					public CodonUsage call() {
+						// Only nucleic acid sequences are counted.
+						analyzer.determineTypes(chunk);
+						CodonUsage partial = new CodonUsage();
+						partial.add(chunk);
+						return partial;
+					}
+				}));
+				// Merge the counts of the oldest chunks so that their sequences can be freed.
+				while (pending.size() > 2 * pool.getParallelism()) {
+					usage.merge(pending.poll().join());
+				}
 			} while (list.size() > 0);
+			parser.close();
 		}
-		return aggregateData;
+		// Merge the counts of the remaining chunks.
+		while (!pending.isEmpty()) {
+			usage.merge(pending.poll().join());
+		}
+		return usage;
+	}
+	
+	/**
+	 * Writes the count and frequency of every codon to a file.
+	 * @param usage         the codon counts
+	 * @param filename      the name of the file to store the results
+	 */
+	protected void saveCodonUsage(CodonUsage usage, String filename) {
+		Reporter reporter = new Reporter(filename);
+		reporter.createCodonUsageReport(usage,
+			StringUtils.substringAfterLast(StringUtils.substringBeforeLast(filename, "."), "\\"));
+		reporter.close();
+	}
+	
+	/**
+	 * Given FASTA or FASTQ files, profiles the GC content, GC and AT skew and
+	 * entropy of sliding windows over their nucleic acid sequences, and streams
+	 * the profiles to a binary file.
+	 * NOTE: The files are chunk parsed, and each chunk is written before the 
+	 *       next is analyzed, so only a chunk is ever held in memory.
+	 * @param windowSize   the number of acid codes in a window
+	 * @param step         the distance from one window to the next
+	 * @param filename     the name of the file to store the profiles
+	 * @param files        Any number of files to be parsed.
+	 * @throws IOException   if the profiles cannot be written
+	 */
+	protected void saveWindowProfiles(int windowSize, int step, String filename, String... files) 
+			throws IOException {
+		AcidSequenceAnalyzer analyzer = new AcidSequenceAnalyzer();
+		WindowProfileWriter writer = new WindowProfileWriter(filename, windowSize, step);
+		
+		try {
+			// For every provided file...
+			for (String file : files) {
+				List<AcidSequence> list;
+				// prepare a chunk parser for the file which reads ahead.
+				ChunkParser parser = new ChunkParser(file, 100, READ_AHEAD);
+				try {
+					// Until the file is empty, do...
+					do {
+						list = parser.parseChunk();
+						// Only nucleic acid sequences are profiled.
+						analyzer.determineTypes(list);
+						for (AcidSequence sequence : list) {
+							if (sequence.getType() != AcidSequence.PROTEIN) {
+								writer.write(sequence);
+							}
+						}
+					} while (list.size() > 0);
+				} finally {
+					parser.close();
+				}
+			}
+		} finally {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Writes the count and frequency of every k-mer to a file.
+	 * @param counter       the k-mer counts
+	 * @param filename      the name of the file to store the results
+	 */
+	protected void saveKmerStatistics(KmerCounter counter, String filename) {
+		Reporter reporter = new Reporter(filename);
+		reporter.createKmerReport(counter,
+			StringUtils.substringAfterLast(StringUtils.substringBeforeLast(filename, "."), "\\"));
+		reporter.close();
+	}
+	
+	/**
+	 * Writes the quality and composition statistics of FASTQ reads to a file.
+	 * @param statistics    the statistics for the reads
+	 * @param filename      the name of the file to store the results
+	 */
+	protected void saveQualityStatistics(FastqStatistics statistics, String filename) {
+		Reporter reporter = new Reporter(filename);
+		reporter.createQualityReport(statistics,
+			StringUtils.substringAfterLast(StringUtils.substringBeforeLast(filename, "."), "\\"));
+		reporter.close();
 	}
 	
 	/**
@@ -51,7 +51,7 @@ public abstract class AbstractView implements ViewInterface {
 	 */
 	protected String getLine(String prompt) {
 		String result = "";
-		while (result == "") {
+		while (result.isEmpty()) {
 			System.out.println(prompt);
 			result = scanner.nextLine();
 		}
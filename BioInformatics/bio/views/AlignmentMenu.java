@@ -1,11 +1,14 @@
 package bio.views;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import bio.controllers.FastaIndex;
 import bio.controllers.FileParser;
 import bio.controllers.Reporter;
 import bio.controllers.SubstitutionMatrixParser;
+import bio.models.GotohAligner;
 import bio.models.NWAligner;
 import bio.models.AcidSequence;
 import bio.models.SubstitutionMatrix;
@@ -24,9 +27,31 @@ public class AlignmentMenu extends AbstractView {
 	public static final String HYPHANTRIA_CUNEA = "data\\Hyphantria cunea stat.fasta";
 	public static final String ANOPHELES_GAMBIAE = "data\\Anopheles gambiae stat.fasta";
 	public static final String HYPHANTRIA_ANOPHELES_ALIGNMENT = "data\\Hyphantria Anopheles alignment.txt";
+	
+	public static final String MUS_XENOPUS_AFFINE_ALIGNMENT = "data\\Mus Xenopus affine alignment.txt";
+	public static final String HYPHANTRIA_ANOPHELES_AFFINE_ALIGNMENT = "data\\Hyphantria Anopheles affine alignment.txt";
 
 	public static final String BLOSUM50 = "data\\BLOSUM50.txt";
 	
+	/**
+	 * Reads the first sequence of a FASTA file through its index, 
+	 * without parsing the rest of the file.  A file that cannot be
+	 * indexed is parsed instead.
+	 * @param filename		a FASTA file
+	 * @return				the first sequence in the file
+	 */
+	private AcidSequence readFirstSequence(String filename) {
+		try {
+			FastaIndex index = new FastaIndex(filename);
+			AcidSequence sequence = index.getSequence(0);
+			index.close();
+			return sequence;
+		} catch (IOException e) {
+			FileParser fileParser = new FileParser();
+			return fileParser.parseFile(filename).get(0);
+		}
+	}
+	
 	/**
 	 * Writes the aligned sequences to a file.
 	 * @param list			a list of aligned sequences
@@ -56,6 +81,9 @@ public class AlignmentMenu extends AbstractView {
 		System.out.println("Test Sequences.....................................1");
 		System.out.println("Align Mus musculu and Xenopus laevis sequences.....2");
 		System.out.println("Anopheles gambiae and Hyphantria cunea sequences...3");
+		System.out.println("Test Sequences with affine gaps....................4");
+		System.out.println("Mus musculu and Xenopus laevis with affine gaps....5");
+		System.out.println("Anopheles and Hyphantria with affine gaps..........6");
 		System.out.println("Back...............................................0");
 	}
 	
@@ -80,9 +108,8 @@ public class AlignmentMenu extends AbstractView {
 			SubstitutionMatrixParser parser = new SubstitutionMatrixParser(BLOSUM50);
 			SubstitutionMatrix<Integer> subMatrix = parser.parseSubstitutionMatrix();
 			subMatrix.setGapWeight(8);
-			FileParser fileParser = new FileParser();
-			AcidSequence mus = fileParser.parseFile(MUS_MUSCULU).get(0);
-			AcidSequence xenopus = fileParser.parseFile(XENOPUS_LAEVIS).get(0);
+			AcidSequence mus = readFirstSequence(MUS_MUSCULU);
+			AcidSequence xenopus = readFirstSequence(XENOPUS_LAEVIS);
 			NWAligner aligner = new NWAligner(mus, xenopus, subMatrix);
 			ArrayList<AcidSequence> alignedSequences = aligner.getAlignment();
 			displaySequenceAlignment(alignedSequences);
@@ -92,13 +119,52 @@ public class AlignmentMenu extends AbstractView {
 			SubstitutionMatrixParser parser = new SubstitutionMatrixParser(BLOSUM50);
 			SubstitutionMatrix<Integer> subMatrix = parser.parseSubstitutionMatrix();
 			subMatrix.setGapWeight(8);
-			FileParser fileParser = new FileParser();
-			AcidSequence hyphantria = fileParser.parseFile(HYPHANTRIA_CUNEA).get(0);
-			AcidSequence anopheles = fileParser.parseFile(ANOPHELES_GAMBIAE).get(0);
+			AcidSequence hyphantria = readFirstSequence(HYPHANTRIA_CUNEA);
+			AcidSequence anopheles = readFirstSequence(ANOPHELES_GAMBIAE);
 			NWAligner aligner = new NWAligner(hyphantria, anopheles, subMatrix);
 			ArrayList<AcidSequence> alignedSequences = aligner.getAlignment();
 			displaySequenceAlignment(alignedSequences);
 			saveSequenceAlignment(alignedSequences, HYPHANTRIA_ANOPHELES_ALIGNMENT);
 		}
+		// The affine gap alignments keep the gap weight of 8 and add a length weight of 2,
+		// so opening a gap costs 10 and extending it costs 2.
+		else if (choice == 4) {
+			SubstitutionMatrixParser parser = new SubstitutionMatrixParser(BLOSUM50);
+			SubstitutionMatrix<Integer> subMatrix = parser.parseSubstitutionMatrix();
+			subMatrix.setGapWeight(8);
+			subMatrix.setLengthWeight(2);
+			AcidSequence alpha = new AcidSequence();
+			alpha.appendSequence("PAWHEAE");
+			AcidSequence beta = new AcidSequence();
+			beta.appendSequence("HEAGAWGHEE");
+			GotohAligner aligner = new GotohAligner(alpha, beta, subMatrix);
+			System.out.println(aligner);
+			ArrayList<AcidSequence> alignedSequences = aligner.getAlignment();
+			displaySequenceAlignment(alignedSequences);
+		}
+		else if (choice == 5) {
+			SubstitutionMatrixParser parser = new SubstitutionMatrixParser(BLOSUM50);
+			SubstitutionMatrix<Integer> subMatrix = parser.parseSubstitutionMatrix();
+			subMatrix.setGapWeight(8);
+			subMatrix.setLengthWeight(2);
+			AcidSequence mus = readFirstSequence(MUS_MUSCULU);
+			AcidSequence xenopus = readFirstSequence(XENOPUS_LAEVIS);
+			GotohAligner aligner = new GotohAligner(mus, xenopus, subMatrix);
+			ArrayList<AcidSequence> alignedSequences = aligner.getAlignment();
+			displaySequenceAlignment(alignedSequences);
+			saveSequenceAlignment(alignedSequences, MUS_XENOPUS_AFFINE_ALIGNMENT);
+		}
+		else if (choice == 6) {
+			SubstitutionMatrixParser parser = new SubstitutionMatrixParser(BLOSUM50);
+			SubstitutionMatrix<Integer> subMatrix = parser.parseSubstitutionMatrix();
+			subMatrix.setGapWeight(8);
+			subMatrix.setLengthWeight(2);
+			AcidSequence hyphantria = readFirstSequence(HYPHANTRIA_CUNEA);
+			AcidSequence anopheles = readFirstSequence(ANOPHELES_GAMBIAE);
+			GotohAligner aligner = new GotohAligner(hyphantria, anopheles, subMatrix);
+			ArrayList<AcidSequence> alignedSequences = aligner.getAlignment();
+			displaySequenceAlignment(alignedSequences);
+			saveSequenceAlignment(alignedSequences, HYPHANTRIA_ANOPHELES_AFFINE_ALIGNMENT);
+		}
 	}
 }
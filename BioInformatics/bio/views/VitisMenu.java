@@ -4,6 +4,10 @@ import java.util.Hashtable;
 import java.util.List;
 
 import bio.models.AcidSequenceAnalyzer;
+import bio.models.ApproximateKmerCounter;
+import bio.models.CodonUsage;
+import bio.models.FastqStatistics;
+import bio.models.KmerCounter;
 
 /**
  * A menu for working with FASTA files for Vitis vinifera.
@@ -24,6 +28,12 @@ public class VitisMenu extends AbstractSequenceView {
 	public static final String VITIS_RESULTS_MEDIUM = "results\\Vitis vinifera results medium.txt";
 	public static final String VITIS_RESULTS_FULL = "C:\\Users\\bjw\\Bio Data\\Vitis vinifera results.txt";
 	
+	public static final String VITIS_KMERS_MEDIUM = "results\\Vitis vinifera k-mers medium.txt";
+	public static final String VITIS_APPROXIMATE_KMERS_MEDIUM = "results\\Vitis vinifera approximate k-mers medium.txt";
+	public static final String VITIS_WINDOWS_MEDIUM = "results\\Vitis vinifera windows medium.bwp";
+	public static final String VITIS_CODONS_MEDIUM = "results\\Vitis vinifera codon usage medium.txt";
+	public static final String VITIS_READ_QUALITY = "results\\Vitis vinifera read quality.txt";
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -35,6 +45,13 @@ public class VitisMenu extends AbstractSequenceView {
 		System.out.println("############ LARGE DATA NOT PROVIDED #############");
 		System.out.println("Report data for entire sample....................4");
 		System.out.println("Report data for entire sample using chunking*....5");
+		System.out.println("Report data for entire sample in parallel*.......6");
+		System.out.println("################ DNA STATISTICS ##################");
+		System.out.println("Report k-mers for medium DNA sample*.............7");
+		System.out.println("Report read quality for a FASTQ file*............8");
+		System.out.println("Report approximate k-mers for medium DNA sample*.9");
+		System.out.println("Save window profiles for medium DNA sample*.....10");
+		System.out.println("Report codon usage for medium DNA sample*.......11");
 		System.out.println("Back.............................................0");
 		System.out.println("                    * Recommended for large files.");
 	}
@@ -76,6 +93,60 @@ public class VitisMenu extends AbstractSequenceView {
 			frequencies = analyzer.calculateFrequencies(totals);
 			displayFrequencies(frequencies);
 			saveFrequencyStatistics(totals, frequencies, VITIS_RESULTS_FULL);
+		} else if (choice == 6) {
+			try {
+				totals = reportEntireSampleInParallel(VITIS_DNA_FULL, VITIS_PROTEIN_FULL);
+				displayTotals(totals);
+				frequencies = analyzer.calculateFrequencies(totals);
+				displayFrequencies(frequencies);
+				saveFrequencyStatistics(totals, frequencies, VITIS_RESULTS_FULL);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		} else if (choice == 7) {
+			try {
+				int k = getInteger("Enter the length of the k-mers (1 to 31)");
+				KmerCounter counter = reportKmers(k, true, VITIS_DNA_MEDIUM);
+				System.out.println("Counted " + counter.getTotalCount() + " k-mers, " +
+								   counter.getDistinctCount() + " distinct.\n");
+				saveKmerStatistics(counter, VITIS_KMERS_MEDIUM);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		} else if (choice == 8) {
+			try {
+				String file = getLine("Enter the path of a FASTQ file");
+				FastqStatistics statistics = reportQualityStatistics(file);
+				System.out.println("Read " + statistics.getReadCount() + " reads of " + 
+								   statistics.getBaseCount() + " bases, with a mean quality of " +
+								   statistics.getMeanQuality() + ".\n");
+				saveQualityStatistics(statistics, VITIS_READ_QUALITY);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		} else if (choice == 9) {
+			try {
+				int k = getInteger("Enter the length of the k-mers (1 to 31)");
+				ApproximateKmerCounter counter = reportApproximateKmers(k, true, VITIS_DNA_MEDIUM);
+				System.out.println("Counted " + counter.getTotalCount() + " k-mers, about " +
+								   counter.getDistinctCount() + " distinct.\n");
+				saveApproximateKmerStatistics(counter, VITIS_APPROXIMATE_KMERS_MEDIUM);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		} else if (choice == 10) {
+			try {
+				int windowSize = getInteger("Enter the number of acid codes in a window");
+				int step = getInteger("Enter the distance from one window to the next");
+				saveWindowProfiles(windowSize, step, VITIS_WINDOWS_MEDIUM, VITIS_DNA_MEDIUM);
+				System.out.println("Saved the window profiles to " + VITIS_WINDOWS_MEDIUM + ".\n");
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		} else if (choice == 11) {
+			CodonUsage usage = reportCodonUsage(VITIS_DNA_MEDIUM);
+			System.out.println("Counted " + usage.getTotalCount() + " codons in six reading frames.\n");
+			saveCodonUsage(usage, VITIS_CODONS_MEDIUM);
 		}
 	}	
 }
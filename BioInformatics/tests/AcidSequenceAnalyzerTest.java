@@ -0,0 +1,74 @@
+package tests;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Random;
+
+import bio.models.AcidSequence;
+import bio.models.AcidSequenceAnalyzer;
+import junit.framework.TestCase;
+
+public class AcidSequenceAnalyzerTest extends TestCase {
+	AcidSequenceAnalyzer analyzer;
+	List<AcidSequence> list;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		analyzer = new AcidSequenceAnalyzer();
+		list = new ArrayList<AcidSequence>();
+		Random random = new Random(14);
+		// Many short sequences of every type, and a few long enough to be divided between tasks.
+		for (int i = 0; i < 2000; i++) {
+			list.add(randomSequence(random, i % 3 == 0 ? "ACGTN" : i % 3 == 1 ? "ACGU" : "ACDEFGHIKLMNPQRSTVWY",
+									random.nextInt(300)));
+		}
+		list.add(randomSequence(random, "ACGT", 3000000));
+		list.add(randomSequence(random, "ACDEFGHIKLMNPQRSTVWY", 2500000));
+		list.add(new AcidSequence());
+	}
+
+	private AcidSequence randomSequence(Random random, String codes, int length) {
+		StringBuilder residues = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			residues.append(codes.charAt(random.nextInt(codes.length())));
+		}
+		AcidSequence sequence = new AcidSequence();
+		sequence.appendSequence(residues.toString());
+		return sequence;
+	}
+
+	public void testDetermineTotalsInParallel() {
+		analyzer.determineTypes(list);
+		List<Hashtable<String, Integer>> serial = analyzer.determineTotals(list);
+		assertEquals(serial, analyzer.determineTotalsInParallel(list));
+		assertTrue(serial.get(0).get("A") > 0);
+		assertTrue(serial.get(1).get("W") > 0);
+	}
+
+	public void testDetermineTotalsInParallelKeepsTypes() {
+		analyzer.determineTypes(list);
+		// A type set by hand is counted as it is, as determineTotals does.
+		list.get(0).setType(AcidSequence.PROTEIN);
+		assertEquals(analyzer.determineTotals(list), analyzer.determineTotalsInParallel(list));
+		assertEquals(AcidSequence.PROTEIN, list.get(0).getType());
+	}
+
+	public void testDetermineTypesAndTotalsInParallel() {
+		List<Hashtable<String, Integer>> parallel = analyzer.determineTypesAndTotalsInParallel(list);
+		int[] types = new int[list.size()];
+		for (int i = 0; i < list.size(); i++) {
+			types[i] = list.get(i).getType();
+		}
+		analyzer.determineTypes(list);
+		for (int i = 0; i < list.size(); i++) {
+			assertEquals(list.get(i).getType(), types[i]);
+		}
+		assertEquals(analyzer.determineTotals(list), parallel);
+	}
+
+	public void testEmptyList() {
+		List<AcidSequence> empty = new ArrayList<AcidSequence>();
+		assertEquals(analyzer.determineTotals(empty), analyzer.determineTotalsInParallel(empty));
+	}
+}
@@ -0,0 +1,214 @@
+package tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import bio.models.AcidSequence;
+import bio.models.SubstitutionMatrix;
+
+/**
+ * Random test inputs for the aligners, and a plain O(nm) dynamic program to
+ * check their scores against.
+ */
+public class AlignmentReference {
+	public static final String LABELS = "ARNDCQEGHILKMFPSTWYV";
+
+	/**
+	 * A substitution matrix of random scores from -4 to 6, not symmetric,
+	 * so an aligner that swaps the Sequences scores differently.
+	 */
+	public static SubstitutionMatrix<Integer> randomMatrix(Random random, int gapWeight, int lengthWeight) {
+		ArrayList<String> labels = new ArrayList<String>();
+		for (char label : LABELS.toCharArray()) {
+			labels.add(label + "");
+		}
+		SubstitutionMatrix<Integer> matrix = new SubstitutionMatrix<Integer>(gapWeight, lengthWeight, labels, 0);
+		for (String alpha : labels) {
+			for (String beta : labels) {
+				matrix.set(alpha, beta, alpha.equals(beta) ? 2 + random.nextInt(5) : random.nextInt(9) - 4);
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * A random Sequence of the first codes of LABELS.
+	 */
+	public static AcidSequence randomSequence(Random random, int length, int codes) {
+		StringBuilder residues = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			residues.append(LABELS.charAt(random.nextInt(codes)));
+		}
+		return sequence(residues.toString());
+	}
+
+	/**
+	 * A copy of a Sequence with a fraction of its codes substituted, deleted or
+	 * followed by an insertion.
+	 */
+	public static AcidSequence mutate(Random random, AcidSequence sequence, double rate) {
+		StringBuilder residues = new StringBuilder();
+		String original = sequence.getSequence();
+		for (int i = 0; i < original.length(); i++) {
+			double x = random.nextDouble();
+			if (x < rate / 3) {
+				continue;
+			}
+			residues.append(x < 2 * rate / 3 ? LABELS.charAt(random.nextInt(LABELS.length())) : original.charAt(i));
+			if (x >= 2 * rate / 3 && x < rate) {
+				residues.append(LABELS.charAt(random.nextInt(LABELS.length())));
+			}
+		}
+		return sequence(residues.toString());
+	}
+
+	public static AcidSequence sequence(String residues) {
+		AcidSequence sequence = new AcidSequence();
+		sequence.appendSequence(residues);
+		return sequence;
+	}
+
+	/**
+	 * Pairs of random Sequences, from 0 to maxLength codes long, beginning
+	 * with every combination of empty Sequences.
+	 */
+	public static List<AcidSequence[]> randomPairs(Random random, int pairs, int maxLength) {
+		List<AcidSequence[]> list = new ArrayList<AcidSequence[]>();
+		list.add(new AcidSequence[] {sequence(""), sequence("")});
+		list.add(new AcidSequence[] {sequence(""), randomSequence(random, 1 + random.nextInt(maxLength), 20)});
+		list.add(new AcidSequence[] {randomSequence(random, 1 + random.nextInt(maxLength), 20), sequence("")});
+		while (list.size() < pairs) {
+			// A few codes give many alignments of equal score.
+			int codes = list.size() % 2 == 0 ? 20 : 3;
+			list.add(new AcidSequence[] {randomSequence(random, random.nextInt(maxLength + 1), codes),
+										 randomSequence(random, random.nextInt(maxLength + 1), codes)});
+		}
+		return list;
+	}
+
+	/**
+	 * The score of the optimal global alignment with a linear gap penalty of
+	 * the gap weight, filling the whole matrix.
+	 */
+	public static int linearScore(AcidSequence alpha, AcidSequence beta, SubstitutionMatrix<Integer> matrix) {
+		String x = alpha.getSequence();
+		String y = beta.getSequence();
+		int gap = matrix.getGapWeight();
+		int[][] score = new int[x.length() + 1][y.length() + 1];
+		for (int a = 0; a <= x.length(); a++) {
+			for (int b = 0; b <= y.length(); b++) {
+				if (a == 0 || b == 0) {
+					score[a][b] = -gap * (a + b);
+				} else {
+					score[a][b] = Math.max(score[a - 1][b - 1] + matrix.get(x.charAt(a - 1) + "", y.charAt(b - 1) + ""),
+										   Math.max(score[a - 1][b], score[a][b - 1]) - gap);
+				}
+			}
+		}
+		return score[x.length()][y.length()];
+	}
+
+	/**
+	 * Checks that an alignment holds exactly the codes of its Sequences, and
+	 * scores it with a linear gap penalty of the gap weight.
+	 * @return	the score, or null if the alignment is not of the Sequences
+	 */
+	public static Integer scoreLinearAlignment(List<AcidSequence> alignment, AcidSequence alpha, AcidSequence beta,
+											   SubstitutionMatrix<Integer> matrix) {
+		String x = alignment.get(1).getSequence();
+		String y = alignment.get(0).getSequence();
+		if (!isAlignment(x, y, alpha, beta)) {
+			return null;
+		}
+		int score = 0;
+		for (int i = 0; i < x.length(); i++) {
+			if (x.charAt(i) == '-' || y.charAt(i) == '-') {
+				score -= matrix.getGapWeight();
+			} else {
+				score += matrix.get(x.charAt(i) + "", y.charAt(i) + "");
+			}
+		}
+		return score;
+	}
+
+	/**
+	 * The score of the optimal global alignment with affine gaps, where a gap of
+	 * length L costs gapWeight + lengthWeight * L, from the three matrices of
+	 * alignments ending in a match, a gap in beta and a gap in alpha.
+	 */
+	public static int affineScore(AcidSequence alpha, AcidSequence beta, SubstitutionMatrix<Integer> matrix) {
+		String x = alpha.getSequence();
+		String y = beta.getSequence();
+		int open = matrix.getGapWeight() + matrix.getLengthWeight();
+		int extend = matrix.getLengthWeight();
+		int none = Integer.MIN_VALUE / 4;
+		int[][] match = new int[x.length() + 1][y.length() + 1];
+		int[][] delete = new int[x.length() + 1][y.length() + 1];
+		int[][] insert = new int[x.length() + 1][y.length() + 1];
+		for (int a = 0; a <= x.length(); a++) {
+			for (int b = 0; b <= y.length(); b++) {
+				match[a][b] = a == 0 && b == 0 ? 0 : none;
+				delete[a][b] = none;
+				insert[a][b] = none;
+				if (a > 0 && b > 0) {
+					match[a][b] = best(match, delete, insert, a - 1, b - 1)
+								  + matrix.get(x.charAt(a - 1) + "", y.charAt(b - 1) + "");
+				}
+				if (a > 0) {
+					delete[a][b] = Math.max(best(match, delete, insert, a - 1, b) - open, delete[a - 1][b] - extend);
+				}
+				if (b > 0) {
+					insert[a][b] = Math.max(best(match, delete, insert, a, b - 1) - open, insert[a][b - 1] - extend);
+				}
+			}
+		}
+		return best(match, delete, insert, x.length(), y.length());
+	}
+
+	private static int best(int[][] match, int[][] delete, int[][] insert, int a, int b) {
+		return Math.max(match[a][b], Math.max(delete[a][b], insert[a][b]));
+	}
+
+	/**
+	 * Checks that an alignment holds exactly the codes of its Sequences, and
+	 * scores it with affine gaps, each run of gaps in one row being one gap.
+	 * @return	the score, or null if the alignment is not of the Sequences
+	 */
+	public static Integer scoreAffineAlignment(List<AcidSequence> alignment, AcidSequence alpha, AcidSequence beta,
+											   SubstitutionMatrix<Integer> matrix) {
+		String x = alignment.get(1).getSequence();
+		String y = alignment.get(0).getSequence();
+		if (!isAlignment(x, y, alpha, beta)) {
+			return null;
+		}
+		int score = 0;
+		for (int i = 0; i < x.length(); i++) {
+			if (x.charAt(i) == '-' || y.charAt(i) == '-') {
+				String row = x.charAt(i) == '-' ? x : y;
+				boolean opened = i == 0 || row.charAt(i - 1) != '-';
+				score -= (opened ? matrix.getGapWeight() : 0) + matrix.getLengthWeight();
+			} else {
+				score += matrix.get(x.charAt(i) + "", y.charAt(i) + "");
+			}
+		}
+		return score;
+	}
+
+	/**
+	 * Whether two aligned rows are of equal length, hold no column of two gaps,
+	 * and hold exactly the codes of their Sequences.
+	 */
+	static boolean isAlignment(String x, String y, AcidSequence alpha, AcidSequence beta) {
+		if (x.length() != y.length() || !x.replace("-", "").equals(alpha.getSequence())
+				|| !y.replace("-", "").equals(beta.getSequence())) {
+			return false;
+		}
+		for (int i = 0; i < x.length(); i++) {
+			if (x.charAt(i) == '-' && y.charAt(i) == '-') {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,118 @@
+package tests;
+
+import java.util.Random;
+
+import bio.models.AcidSequence;
+import bio.models.CodonUsage;
+import bio.models.GeneticCode;
+import junit.framework.TestCase;
+
+public class CodonUsageTest extends TestCase {
+	private AcidSequence sequence(String residues) {
+		AcidSequence sequence = new AcidSequence("seq");
+		sequence.appendSequence(residues);
+		return sequence;
+	}
+
+	/**
+	 * The reverse complement of a String of nucleotides, with any other code kept.
+	 */
+	private String reverseComplement(String residues) {
+		StringBuilder result = new StringBuilder(residues.length());
+		for (int i = residues.length() - 1; i >= 0; i--) {
+			char c = residues.charAt(i);
+			int index = "ACGTU".indexOf(c);
+			result.append(index < 0 ? c : "TGCAA".charAt(index));
+		}
+		return result.toString();
+	}
+
+	public void testFramesByHand() {
+		// The reverse complement is TTAGGCCAT.
+		CodonUsage usage = new CodonUsage();
+		usage.add(sequence("ATGGCCTAA"));
+		assertEquals(1, usage.getCount(0, GeneticCode.indexOf("ATG")));
+		assertEquals(1, usage.getCount(1, GeneticCode.indexOf("TGG")));
+		assertEquals(1, usage.getCount(2, GeneticCode.indexOf("CTA")));
+		assertEquals(1, usage.getCount(3, GeneticCode.indexOf("TTA")));
+		assertEquals(1, usage.getCount(3, GeneticCode.indexOf("CAT")));
+		assertEquals(1, usage.getCount(4, GeneticCode.indexOf("TAG")));
+		assertEquals(1, usage.getCount(4, GeneticCode.indexOf("GCC")));
+		assertEquals(1, usage.getCount(5, GeneticCode.indexOf("AGG")));
+		assertEquals(1, usage.getCount(5, GeneticCode.indexOf("CCA")));
+		assertEquals(0, usage.getCount(5, GeneticCode.indexOf("TTA")));
+		// Seven codons in each direction.
+		assertEquals(14, usage.getTotalCount());
+		assertEquals(2, usage.getCount(GeneticCode.indexOf("GCC")));
+	}
+
+	public void testTranslateByHand() {
+		AcidSequence sequence = sequence("ATGGCCTAA");
+		assertEquals("MA*", CodonUsage.translate(sequence, 0).getSequence());
+		assertEquals("WP", CodonUsage.translate(sequence, 1).getSequence());
+		assertEquals("GL", CodonUsage.translate(sequence, 2).getSequence());
+		assertEquals("LGH", CodonUsage.translate(sequence, 3).getSequence());
+		assertEquals("*A", CodonUsage.translate(sequence, 4).getSequence());
+		assertEquals("RP", CodonUsage.translate(sequence, 5).getSequence());
+		assertEquals("seq frame -1", CodonUsage.translate(sequence, 3).getDescription());
+		assertEquals("seq frame -3", CodonUsage.translate(sequence, 5).getDescription());
+		assertEquals(AcidSequence.PROTEIN, CodonUsage.translate(sequence, 4).getType());
+	}
+
+	public void testOtherCodes() {
+		// The reverse complement is GGNCAT.
+		AcidSequence sequence = sequence("ATGNCC");
+		assertEquals("MX", CodonUsage.translate(sequence, 0).getSequence());
+		assertEquals("XH", CodonUsage.translate(sequence, 3).getSequence());
+		CodonUsage usage = new CodonUsage();
+		usage.add(sequence);
+		assertEquals(1, usage.getCount(3, GeneticCode.indexOf("CAT")));
+		assertEquals(2, usage.getTotalCount());
+	}
+
+	public void testShortSequences() {
+		for (String residues : new String[] {"", "A", "AC"}) {
+			CodonUsage usage = new CodonUsage();
+			usage.add(sequence(residues));
+			assertEquals(0, usage.getTotalCount());
+			for (int frame = 0; frame < CodonUsage.FRAMES; frame++) {
+				assertEquals("", CodonUsage.translate(sequence(residues), frame).getSequence());
+			}
+		}
+	}
+
+	public void testReverseFramesReadTheReverseComplement() {
+		Random random = new Random(20);
+		for (int length = 0; length < 40; length++) {
+			StringBuilder residues = new StringBuilder();
+			for (int i = 0; i < length; i++) {
+				residues.append("ACGTACGTACGTN".charAt(random.nextInt(13)));
+			}
+			AcidSequence forward = sequence(residues.toString());
+			AcidSequence reverse = sequence(reverseComplement(residues.toString()));
+			CodonUsage forwardUsage = new CodonUsage();
+			CodonUsage reverseUsage = new CodonUsage();
+			forwardUsage.add(forward);
+			reverseUsage.add(reverse);
+			for (int frame = 0; frame < 3; frame++) {
+				assertEquals(CodonUsage.translate(reverse, frame).getSequence(),
+							 CodonUsage.translate(forward, frame + 3).getSequence());
+				assertEquals(CodonUsage.translate(forward, frame).getSequence(),
+							 CodonUsage.translate(reverse, frame + 3).getSequence());
+				for (int codon = 0; codon < GeneticCode.CODONS; codon++) {
+					assertEquals(reverseUsage.getCount(frame, codon), forwardUsage.getCount(frame + 3, codon));
+					assertEquals(forwardUsage.getCount(frame, codon), reverseUsage.getCount(frame + 3, codon));
+				}
+			}
+		}
+	}
+
+	public void testInvalidFrame() {
+		try {
+			CodonUsage.translate(sequence("ATG"), 6);
+			fail("There are six frames");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
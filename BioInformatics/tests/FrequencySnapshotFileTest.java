@@ -0,0 +1,167 @@
+package tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import bio.controllers.FrequencySnapshotFile;
+import bio.models.AcidSequence;
+import bio.models.FrequencySnapshot;
+import bio.models.FrequencySnapshot.Shard;
+import junit.framework.TestCase;
+
+public class FrequencySnapshotFileTest extends TestCase {
+	FrequencySnapshotFile file;
+	File temp;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		file = new FrequencySnapshotFile();
+		temp = File.createTempFile("snapshot", ".bfs");
+		temp.deleteOnExit();
+	}
+
+	protected void tearDown() throws Exception {
+		temp.delete();
+		super.tearDown();
+	}
+
+	private List<AcidSequence> sequences(String... residues) {
+		List<AcidSequence> list = new ArrayList<AcidSequence>();
+		for (String r : residues) {
+			AcidSequence sequence = new AcidSequence();
+			sequence.appendSequence(r);
+			list.add(sequence);
+		}
+		return list;
+	}
+
+	/**
+	 * A snapshot of the first of two shards of a 100 byte file.
+	 */
+	private FrequencySnapshot snapshot() {
+		FrequencySnapshot snapshot = new FrequencySnapshot(new Shard("/data/a.fa", 0, 60, 100, 0, 2));
+		snapshot.add(sequences("ACGTAA", "MKWVEE", ""));
+		return snapshot;
+	}
+
+	public void testRoundTrip() throws IOException {
+		FrequencySnapshot snapshot = snapshot();
+		// Hand counts of the codes and lengths.
+		assertEquals(3, snapshot.getCounts()[0]['A']);
+		assertEquals(1, snapshot.getCounts()[0]['T']);
+		assertEquals(2, snapshot.getCounts()[1]['E']);
+		assertEquals(1, snapshot.getLengthHistogram()[0]);
+		assertEquals(2, snapshot.getLengthHistogram()[3]);
+		file.write(snapshot, temp.getPath());
+		FrequencySnapshot read = file.read(temp.getPath());
+		assertTrue(Arrays.deepEquals(snapshot.getCounts(), read.getCounts()));
+		assertTrue(Arrays.equals(snapshot.getLengthHistogram(), read.getLengthHistogram()));
+		assertEquals(3, read.getSequenceCount());
+		assertEquals(snapshot.getShards(), read.getShards());
+		Shard shard = read.getShards().first();
+		assertEquals("/data/a.fa", shard.getFile());
+		assertEquals(60, shard.getEnd());
+		assertEquals(100, shard.getLength());
+		assertEquals(2, shard.getCount());
+	}
+
+	public void testCorruptFilesAreRefused() throws IOException {
+		file.write(snapshot(), temp.getPath());
+		byte[] original = new byte[(int) temp.length()];
+		RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+		try {
+			raf.readFully(original);
+			// Every byte changed in turn, including the checksum.
+			for (int i = 0; i < original.length; i++) {
+				raf.seek(i);
+				raf.write(original[i] ^ 0x5a);
+				try {
+					file.read(temp.getPath());
+					fail("Byte " + i + " was changed");
+				} catch (IOException e) {
+					// expected
+				}
+				raf.seek(i);
+				raf.write(original[i]);
+			}
+		} finally {
+			raf.close();
+		}
+		file.read(temp.getPath());
+	}
+
+	public void testTruncatedFilesAreRefused() throws IOException {
+		file.write(snapshot(), temp.getPath());
+		long length = temp.length();
+		for (long truncated : new long[] {length - 1, length - 8, length / 2, 4, 0}) {
+			RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+			raf.setLength(truncated);
+			raf.close();
+			try {
+				file.read(temp.getPath());
+				fail("Truncated to " + truncated + " bytes");
+			} catch (IOException e) {
+				// expected
+			}
+		}
+	}
+
+	public void testMergeOfShards() throws IOException {
+		FrequencySnapshot second = new FrequencySnapshot(new Shard("/data/a.fa", 60, 100, 100, 1, 2));
+		second.add(sequences("GGA"));
+		file.write(second, temp.getPath());
+		FrequencySnapshot merged = snapshot().merge(file.read(temp.getPath()));
+		merged.checkComplete();
+		assertEquals(4, merged.getCounts()[0]['A']);
+		assertEquals(3, merged.getCounts()[0]['G']);
+		assertEquals(4, merged.getSequenceCount());
+		assertEquals(2, merged.getShards().size());
+	}
+
+	public void testOverlappingShardsAreRefused() {
+		FrequencySnapshot snapshot = snapshot();
+		for (Shard shard : new Shard[] {new Shard("/data/a.fa", 59, 100, 100, 1, 2),
+										new Shard("/data/a.fa", 0, 60, 100, 0, 2),
+										new Shard("/data/a.fa", 10, 20, 100, 1, 10)}) {
+			try {
+				snapshot.merge(new FrequencySnapshot(shard));
+				fail(shard + " overlaps");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+		// A file of another length was changed between the shards.
+		try {
+			snapshot.merge(new FrequencySnapshot(new Shard("/data/a.fa", 60, 120, 120, 1, 2)));
+			fail("The file changed");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		assertEquals(1, snapshot.getShards().size());
+		// The same range of another file does not overlap.
+		snapshot.merge(new FrequencySnapshot(new Shard("/data/b.fa", 0, 60, 100, 0, 2)));
+	}
+
+	public void testIncompleteSnapshotsAreRefused() {
+		FrequencySnapshot snapshot = snapshot();
+		try {
+			snapshot.checkComplete();
+			fail("Bytes 60 to 100 were not counted");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		snapshot.merge(new FrequencySnapshot(new Shard("/data/a.fa", 80, 100, 100, 1, 2)));
+		try {
+			snapshot.checkComplete();
+			fail("Bytes 60 to 80 were not counted");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		snapshot.merge(new FrequencySnapshot(new Shard("/data/a.fa", 60, 80, 100, 1, 2)));
+		snapshot.checkComplete();
+	}
+}
@@ -0,0 +1,83 @@
+package tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import bio.models.AcidSequence;
+import bio.models.GotohAligner;
+import bio.models.SubstitutionMatrix;
+import junit.framework.TestCase;
+
+public class GotohAlignerTest extends TestCase {
+	SubstitutionMatrix<Integer> matrix;
+	List<AcidSequence[]> pairs;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		Random random = new Random(25);
+		matrix = AlignmentReference.randomMatrix(random, 8, 2);
+		pairs = AlignmentReference.randomPairs(random, 300, 60);
+	}
+
+	/**
+	 * Checks that an aligner found an optimal affine alignment of its Sequences.
+	 */
+	private void assertOptimal(GotohAligner aligner, AcidSequence alpha, AcidSequence beta,
+							   SubstitutionMatrix<Integer> matrix) {
+		int expected = AlignmentReference.affineScore(alpha, beta, matrix);
+		assertEquals(expected, aligner.getScore());
+		Integer scored = AlignmentReference.scoreAffineAlignment(aligner.getAlignment(), alpha, beta, matrix);
+		assertNotNull(scored);
+		assertEquals(expected, scored.intValue());
+	}
+
+	public void testMatchesReference() {
+		for (AcidSequence[] pair : pairs) {
+			assertOptimal(new GotohAligner(pair[0], pair[1], matrix), pair[0], pair[1], matrix);
+		}
+	}
+
+	public void testLongGapsAndExtensions() {
+		Random random = new Random(250);
+		// Cheap extensions favour long gaps, and dear ones favour mismatches.
+		for (int[] weights : new int[][] {{12, 1}, {3, 4}, {0, 5}}) {
+			SubstitutionMatrix<Integer> weighted = AlignmentReference.randomMatrix(random, weights[0], weights[1]);
+			for (int i = 0; i < 30; i++) {
+				AcidSequence alpha = AlignmentReference.randomSequence(random, 40 + random.nextInt(120), 20);
+				AcidSequence beta = AlignmentReference.mutate(random, alpha, 0.3);
+				assertOptimal(new GotohAligner(alpha, beta, weighted), alpha, beta, weighted);
+			}
+		}
+	}
+
+	public void testOneLongGap() {
+		ArrayList<String> labels = new ArrayList<String>();
+		for (char label : AlignmentReference.LABELS.toCharArray()) {
+			labels.add(label + "");
+		}
+		SubstitutionMatrix<Integer> simple = new SubstitutionMatrix<Integer>(10, 1, labels, 0);
+		for (String alpha : labels) {
+			for (String beta : labels) {
+				simple.set(alpha, beta, alpha.equals(beta) ? 5 : -3);
+			}
+		}
+		GotohAligner aligner = new GotohAligner(AlignmentReference.sequence("ACDEFGHIK"),
+												AlignmentReference.sequence("ACDIK"), simple);
+		// Five matches and one gap of four: 25 - (10 + 4).
+		assertEquals(11, aligner.getScore());
+		assertEquals("ACD----IK", aligner.getAlignment().get(0).getSequence());
+		assertEquals("ACDEFGHIK", aligner.getAlignment().get(1).getSequence());
+	}
+
+	public void testEmptySequences() {
+		AcidSequence empty = AlignmentReference.sequence("");
+		AcidSequence three = AlignmentReference.sequence("ARN");
+		// One gap of three: 8 + 2 * 3.
+		GotohAligner aligner = new GotohAligner(three, empty, matrix);
+		assertEquals(-14, aligner.getScore());
+		assertEquals("---", aligner.getAlignment().get(0).getSequence());
+		assertEquals(-14, new GotohAligner(empty, three, matrix).getScore());
+		assertEquals(0, new GotohAligner(empty, empty, matrix).getScore());
+	}
+}
@@ -0,0 +1,129 @@
+package tests;
+
+import bio.models.AcidSequence;
+import bio.models.KmerCounter;
+import bio.models.KmerTable;
+import junit.framework.TestCase;
+
+public class KmerCounterTest extends TestCase {
+	private AcidSequence sequence(String residues) {
+		AcidSequence sequence = new AcidSequence();
+		sequence.appendSequence(residues);
+		return sequence;
+	}
+
+	public void testForwardCounts() {
+		KmerCounter counter = new KmerCounter(2, false);
+		counter.add(sequence("ACGTACGT"));
+		// AC CG GT TA AC CG GT
+		assertEquals(2, counter.getCount("AC"));
+		assertEquals(2, counter.getCount("CG"));
+		assertEquals(2, counter.getCount("GT"));
+		assertEquals(1, counter.getCount("TA"));
+		assertEquals(0, counter.getCount("CA"));
+		assertEquals(4, counter.getDistinctCount());
+		assertEquals(7, counter.getTotalCount());
+	}
+
+	public void testCanonicalCounts() {
+		KmerCounter counter = new KmerCounter(2, true);
+		counter.add(sequence("ACGTACGT"));
+		// AC and its reverse complement GT are counted together.
+		assertEquals(4, counter.getCount("AC"));
+		assertEquals(4, counter.getCount("GT"));
+		assertEquals(2, counter.getCount("CG"));
+		assertEquals(1, counter.getCount("TA"));
+		assertEquals(3, counter.getDistinctCount());
+		assertEquals(7, counter.getTotalCount());
+	}
+
+	public void testCanonicalCountsOfEitherStrand() {
+		KmerCounter forward = new KmerCounter(3, true);
+		KmerCounter reverse = new KmerCounter(3, true);
+		forward.add(sequence("AAAATGCCGTTAGC"));
+		reverse.add(sequence("GCTAACGGCATTTT"));
+		assertEquals(forward.getDistinctCount(), reverse.getDistinctCount());
+		for (long key : forward.getTable().getKeys()) {
+			assertEquals(forward.getTable().get(key), reverse.getTable().get(key));
+		}
+		// AAA twice, with TTT
+		assertEquals(2, forward.getCount("TTT"));
+		assertEquals(1, forward.getCount("AAT"));
+		assertEquals(1, forward.getCount("ATT"));
+	}
+
+	public void testOtherCodesAreSkipped() {
+		KmerCounter counter = new KmerCounter(2, false);
+		counter.add(sequence("AANAAuu"));
+		// AA on either side of the N; U is counted as T.
+		assertEquals(2, counter.getCount("AA"));
+		assertEquals(1, counter.getCount("AT"));
+		assertEquals(1, counter.getCount("TT"));
+		assertEquals(0, counter.getCount("AN"));
+		assertEquals(4, counter.getTotalCount());
+		assertEquals(-1, counter.encode("AAA"));
+	}
+
+	public void testDecode() {
+		KmerCounter counter = new KmerCounter(5, false);
+		assertEquals("GATTC", counter.decode(counter.encode("GATTC")));
+	}
+
+	public void testMerge() {
+		KmerCounter first = new KmerCounter(2, true);
+		KmerCounter second = new KmerCounter(2, true);
+		first.add(sequence("ACGT"));
+		second.add(sequence("ACCA"));
+		first.merge(second);
+		// AC CG GT, then AC CC CA
+		assertEquals(3, first.getCount("AC"));
+		assertEquals(1, first.getCount("GG"));
+		assertEquals(1, first.getCount("TG"));
+		assertEquals(6, first.getTotalCount());
+		try {
+			first.merge(new KmerCounter(2, false));
+			fail("Forward and canonical counts cannot be merged");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testTableGrowth() {
+		KmerTable table = new KmerTable();
+		// Far past the first 1024 slots, with keys that differ in their low bits.
+		for (long key = 0; key < 20000; key++) {
+			table.add(key, (int) (key % 7) + 1);
+		}
+		table.increment(19999);
+		assertEquals(20000, table.size());
+		for (long key = 0; key < 19999; key++) {
+			assertEquals((int) (key % 7) + 1, table.get(key));
+		}
+		assertEquals(19999 % 7 + 2, table.get(19999));
+		assertEquals(0, table.get(20000));
+		long[] keys = table.getKeys();
+		assertEquals(20000, keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(i, keys[i]);
+		}
+	}
+
+	public void testTableMerge() {
+		KmerTable first = new KmerTable();
+		KmerTable second = new KmerTable();
+		for (long key = 0; key < 3000; key++) {
+			first.add(key, 2);
+			second.add(key + 1500, 3);
+		}
+		second.add(0, Integer.MAX_VALUE);
+		first.merge(second);
+		assertEquals(4500, first.size());
+		assertEquals(2, first.get(1499));
+		assertEquals(5, first.get(1500));
+		assertEquals(5, first.get(2999));
+		assertEquals(3, first.get(3000));
+		assertEquals(3, first.get(4499));
+		// A count stops at the largest int.
+		assertEquals(Integer.MAX_VALUE, first.get(0));
+	}
+}
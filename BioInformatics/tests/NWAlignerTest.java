@@ -0,0 +1,124 @@
+package tests;
+
+import java.util.List;
+import java.util.Random;
+
+import bio.models.AcidSequence;
+import bio.models.NWAligner;
+import bio.models.SubstitutionMatrix;
+import junit.framework.TestCase;
+
+public class NWAlignerTest extends TestCase {
+	SubstitutionMatrix<Integer> matrix;
+	List<AcidSequence[]> pairs;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		Random random = new Random(21);
+		matrix = AlignmentReference.randomMatrix(random, 6, 0);
+		pairs = AlignmentReference.randomPairs(random, 300, 60);
+	}
+
+	/**
+	 * Checks that an aligner found an optimal alignment of its Sequences.
+	 */
+	private void assertOptimal(NWAligner aligner, AcidSequence alpha, AcidSequence beta) {
+		int expected = AlignmentReference.linearScore(alpha, beta, matrix);
+		assertEquals(expected, aligner.getScore());
+		Integer scored = AlignmentReference.scoreLinearAlignment(aligner.getAlignment(), alpha, beta, matrix);
+		assertNotNull(scored);
+		assertEquals(expected, scored.intValue());
+	}
+
+	public void testFullMatchesReference() {
+		for (AcidSequence[] pair : pairs) {
+			NWAligner aligner = new NWAligner(pair[0], pair[1], matrix, NWAligner.Mode.FULL);
+			assertEquals(NWAligner.Mode.FULL, aligner.getMode());
+			assertOptimal(aligner, pair[0], pair[1]);
+		}
+	}
+
+	public void testAutoChoosesFullForShortSequences() {
+		AcidSequence[] pair = pairs.get(pairs.size() - 1);
+		NWAligner aligner = new NWAligner(pair[0], pair[1], matrix);
+		assertEquals(NWAligner.Mode.FULL, aligner.getMode());
+		assertOptimal(aligner, pair[0], pair[1]);
+	}
+
+	public void testHirschbergMatchesReference() {
+		for (AcidSequence[] pair : pairs) {
+			NWAligner aligner = new NWAligner(pair[0], pair[1], matrix, NWAligner.Mode.HIRSCHBERG);
+			assertEquals(NWAligner.Mode.HIRSCHBERG, aligner.getMode());
+			assertOptimal(aligner, pair[0], pair[1]);
+		}
+	}
+
+	public void testHirschbergSplitsLongSequences() {
+		Random random = new Random(22);
+		for (int i = 0; i < 20; i++) {
+			AcidSequence alpha = AlignmentReference.randomSequence(random, 200 + random.nextInt(400), 20);
+			AcidSequence beta = i % 2 == 0 ? AlignmentReference.mutate(random, alpha, 0.3)
+										   : AlignmentReference.randomSequence(random, random.nextInt(600), 20);
+			assertOptimal(new NWAligner(alpha, beta, matrix, NWAligner.Mode.HIRSCHBERG), alpha, beta);
+		}
+	}
+
+	public void testBandedMatchesReference() {
+		for (AcidSequence[] pair : pairs) {
+			assertOptimal(new NWAligner(pair[0], pair[1], matrix, NWAligner.Mode.BANDED), pair[0], pair[1]);
+		}
+	}
+
+	public void testBandedSimilarSequences() {
+		Random random = new Random(24);
+		int banded = 0;
+		for (int i = 0; i < 60; i++) {
+			AcidSequence alpha = AlignmentReference.randomSequence(random, 150 + random.nextInt(350), 20);
+			AcidSequence beta = AlignmentReference.mutate(random, alpha, 0.02 + 0.3 * random.nextDouble());
+			// An insertion near the edge of the first band makes it widen.
+			if (i % 4 == 0) {
+				String residues = beta.getSequence();
+				int at = random.nextInt(residues.length() + 1);
+				beta = AlignmentReference.sequence(residues.substring(0, at)
+						+ AlignmentReference.randomSequence(random, 10 + random.nextInt(40), 20).getSequence()
+						+ residues.substring(at));
+			}
+			NWAligner aligner = new NWAligner(alpha, beta, matrix, NWAligner.Mode.BANDED);
+			assertOptimal(aligner, alpha, beta);
+			banded += aligner.getMode() == NWAligner.Mode.BANDED ? 1 : 0;
+		}
+		// Most similar pairs are aligned within a band.
+		assertTrue(banded > 30);
+	}
+
+	public void testBandedFallsBackToFull() {
+		Random random = new Random(240);
+		AcidSequence alpha = AlignmentReference.randomSequence(random, 400, 20);
+		AcidSequence beta = AlignmentReference.randomSequence(random, 400, 20);
+		NWAligner aligner = new NWAligner(alpha, beta, matrix, NWAligner.Mode.BANDED);
+		assertEquals(NWAligner.Mode.FULL, aligner.getMode());
+		assertOptimal(aligner, alpha, beta);
+	}
+
+	public void testEmptySequences() {
+		AcidSequence empty = AlignmentReference.sequence("");
+		AcidSequence three = AlignmentReference.sequence("ARN");
+		for (NWAligner.Mode mode : NWAligner.Mode.values()) {
+			NWAligner aligner = new NWAligner(empty, three, matrix, mode);
+			assertEquals(-18, aligner.getScore());
+			assertEquals("ARN", aligner.getAlignment().get(0).getSequence());
+			assertEquals("---", aligner.getAlignment().get(1).getSequence());
+			assertEquals(0, new NWAligner(empty, empty, matrix, mode).getScore());
+			assertEquals("", new NWAligner(empty, empty, matrix, mode).getAlignment().get(0).getSequence());
+		}
+	}
+
+	public void testUnknownCode() {
+		try {
+			new NWAligner(AlignmentReference.sequence("AXA"), AlignmentReference.sequence("A"), matrix);
+			fail("X is not in the matrix");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
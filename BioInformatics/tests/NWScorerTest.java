@@ -0,0 +1,61 @@
+package tests;
+
+import java.util.List;
+import java.util.Random;
+
+import bio.models.AcidSequence;
+import bio.models.NWAligner;
+import bio.models.NWScorer;
+import bio.models.SubstitutionMatrix;
+import junit.framework.TestCase;
+
+public class NWScorerTest extends TestCase {
+	SubstitutionMatrix<Integer> matrix;
+	List<AcidSequence[]> pairs;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		Random random = new Random(23);
+		matrix = AlignmentReference.randomMatrix(random, 5, 0);
+		pairs = AlignmentReference.randomPairs(random, 400, 80);
+	}
+
+	public void testScoreMatchesReference() {
+		// One scorer for every pair, so its buffers are reused as the lengths change.
+		NWScorer scorer = new NWScorer(matrix);
+		for (AcidSequence[] pair : pairs) {
+			assertEquals(AlignmentReference.linearScore(pair[0], pair[1], matrix), scorer.score(pair[0], pair[1]));
+		}
+	}
+
+	public void testScoreAfterLongerSequences() {
+		Random random = new Random(230);
+		NWScorer scorer = new NWScorer(matrix);
+		// Grow the buffers, then score shorter pairs with stale codes left past their ends.
+		for (int length : new int[] {300, 10, 250, 1, 0, 120, 3}) {
+			AcidSequence alpha = AlignmentReference.randomSequence(random, length, 20);
+			AcidSequence beta = AlignmentReference.randomSequence(random, random.nextInt(2 * length + 1), 20);
+			int expected = AlignmentReference.linearScore(alpha, beta, matrix);
+			assertEquals(expected, scorer.score(alpha, beta));
+			assertEquals(AlignmentReference.linearScore(beta, alpha, matrix), scorer.score(beta, alpha));
+			assertEquals(expected, new NWAligner(alpha, beta, matrix).getScore());
+		}
+	}
+
+	public void testEmptySequences() {
+		NWScorer scorer = new NWScorer(matrix);
+		AcidSequence empty = AlignmentReference.sequence("");
+		assertEquals(0, scorer.score(empty, empty));
+		assertEquals(-10, scorer.score(empty, AlignmentReference.sequence("WY")));
+		assertEquals(-10, scorer.score(AlignmentReference.sequence("WY"), empty));
+	}
+
+	public void testUnknownCode() {
+		try {
+			new NWScorer(matrix).score(AlignmentReference.sequence("A"), AlignmentReference.sequence("AB"));
+			fail("B is not in the matrix");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
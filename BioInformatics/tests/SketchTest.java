@@ -0,0 +1,119 @@
+package tests;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+
+import bio.models.CountMinSketch;
+import bio.models.HyperLogLog;
+import junit.framework.TestCase;
+
+public class SketchTest extends TestCase {
+	Random random;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		random = new Random(17);
+	}
+
+	/**
+	 * A key from a skewed distribution, so a few keys are counted often
+	 * and many share counters with them.
+	 */
+	private long skewedKey() {
+		return (long) Math.pow(random.nextInt(1 << 20), 2) >>> 20;
+	}
+
+	public void testCountMinNeverUnderestimates() {
+		// A narrow sketch, so most counters are shared.
+		CountMinSketch sketch = new CountMinSketch(256, 4);
+		Map<Long, Long> exact = new HashMap<Long, Long>();
+		for (int i = 0; i < 200000; i++) {
+			long key = skewedKey();
+			long amount = 1 + random.nextInt(3);
+			sketch.add(key, amount);
+			exact.put(key, (exact.containsKey(key) ? exact.get(key) : 0) + amount);
+		}
+		long total = 0;
+		int within = 0;
+		for (Map.Entry<Long, Long> entry : exact.entrySet()) {
+			long estimate = sketch.estimate(entry.getKey());
+			assertTrue(estimate >= entry.getValue());
+			within += estimate - entry.getValue() <= sketch.getErrorBound() ? 1 : 0;
+			total += entry.getValue();
+		}
+		assertEquals(total, sketch.getTotalCount());
+		assertTrue(within >= sketch.getConfidence() * exact.size());
+	}
+
+	public void testCountMinMerge() {
+		CountMinSketch first = CountMinSketch.forError(0.001, 0.99);
+		CountMinSketch second = CountMinSketch.forError(0.001, 0.99);
+		assertEquals(4096, first.getWidth());
+		assertEquals(5, first.getDepth());
+		Map<Long, Long> exact = new HashMap<Long, Long>();
+		for (int i = 0; i < 100000; i++) {
+			long key = skewedKey();
+			(i % 2 == 0 ? first : second).increment(key);
+			exact.put(key, (exact.containsKey(key) ? exact.get(key) : 0) + 1);
+		}
+		first.merge(second);
+		for (Map.Entry<Long, Long> entry : exact.entrySet()) {
+			assertTrue(first.estimate(entry.getKey()) >= entry.getValue());
+		}
+		assertEquals(100000, first.getTotalCount());
+		try {
+			first.merge(new CountMinSketch(4096, 4));
+			fail("Sketches of different depths cannot be merged");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testHyperLogLogWithinStandardError() {
+		for (int precision : new int[] {10, 14}) {
+			for (int distinct : new int[] {100, 5000, 200000}) {
+				HyperLogLog estimator = new HyperLogLog(precision);
+				HashSet<Long> keys = new HashSet<Long>();
+				while (keys.size() < distinct) {
+					long key = random.nextLong();
+					keys.add(key);
+					// Each key is added more than once.
+					estimator.add(key);
+					estimator.add(key);
+				}
+				double error = Math.abs(estimator.cardinality() - distinct) / (double) distinct;
+				assertTrue(error <= 3 * estimator.getStandardError());
+			}
+		}
+	}
+
+	public void testHyperLogLogMerge() {
+		HyperLogLog first = new HyperLogLog(12);
+		HyperLogLog second = new HyperLogLog(12);
+		HyperLogLog both = new HyperLogLog(12);
+		// Two halves that overlap in 10000 keys.
+		for (long key = 0; key < 60000; key++) {
+			if (key < 35000) {
+				first.add(key);
+			}
+			if (key >= 25000) {
+				second.add(key);
+			}
+			both.add(key);
+		}
+		assertEquals(both.cardinality(), first.merge(second).cardinality());
+		assertTrue(Math.abs(both.cardinality() - 60000) <= 3 * both.getStandardError() * 60000);
+		try {
+			first.merge(new HyperLogLog(11));
+			fail("Estimators of different precisions cannot be merged");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	public void testHyperLogLogEmpty() {
+		assertEquals(0, new HyperLogLog(HyperLogLog.MIN_PRECISION).cardinality());
+	}
+}